@@ -119,14 +119,16 @@ public class AsyncChannelTest {
         try (AsynchronousSocketChannel socket = result.get()) {
           System.out.println("Incoming connection from: " + socket.getRemoteAddress());
           
-          ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
-          while (socket.read(buffer).get() != -1) {
-            buffer.flip();
-            socket.write(buffer).get();
-            if (buffer.hasRemaining()) {
-              buffer.compact();
-            } else {
-              buffer.clear();
+          try (PooledBuffer pooled = BufferPool.shared().acquire(1024)) {
+            ByteBuffer buffer = pooled.buffer();
+            while (socket.read(buffer).get() != -1) {
+              buffer.flip();
+              socket.write(buffer).get();
+              if (buffer.hasRemaining()) {
+                buffer.compact();
+              } else {
+                buffer.clear();
+              }
             }
           }
           
@@ -0,0 +1,190 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Echo server driven only by CompletionHandler callbacks, nothing blocks on a Future.
+ * The channels run on the given AsynchronousChannelGroup, so its thread pool decides
+ * how the callbacks are executed:
+ * <ul>
+ * <li>AsynchronousChannelGroup.withFixedThreadPool(n, factory)</li>
+ * <li>AsynchronousChannelGroup.withCachedThreadPool(executor, initialSize)</li>
+ * <li>AsynchronousChannelGroup.withThreadPool(executor)</li>
+ * </ul>
+ * The handlers are stateless, the per connection state travels as the attachment.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class AsyncEchoServer implements Closeable {
+
+  private final InetSocketAddress address;
+  private final AsynchronousChannelGroup group;
+  private final AtomicInteger connections = new AtomicInteger();
+  private final AtomicLong acceptFailures = new AtomicLong();
+  private volatile Throwable lastAcceptFailure;
+  private AsynchronousServerSocketChannel channel;
+  private long readTimeout;
+
+  public AsyncEchoServer(InetSocketAddress address, AsynchronousChannelGroup group) {
+    this.address = address;
+    this.group = group;
+  }
+
+  /**
+   * Close connections which send nothing within the timeout, 0 disables it. The
+   * asynchronous channels support timed reads, so no timer is needed here.
+   */
+  public void setReadTimeout(long timeout, TimeUnit unit) {
+    this.readTimeout = unit.toMillis(timeout);
+  }
+
+  public void start() throws IOException {
+    channel = AsynchronousServerSocketChannel.open(group);
+    channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024);
+    channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    channel.bind(address, 1024);
+    channel.accept(this, ACCEPT);
+  }
+
+  public InetSocketAddress getLocalAddress() throws IOException {
+    return (InetSocketAddress) channel.getLocalAddress();
+  }
+
+  /**
+   * Returns the number of connections currently served
+   */
+  public int connections() {
+    return connections.get();
+  }
+
+  /**
+   * Returns the number of accepts that failed, the server accepts again after each
+   */
+  public long acceptFailures() {
+    return acceptFailures.get();
+  }
+
+  /**
+   * Returns the cause of the last failed accept, null if none failed
+   */
+  public Throwable lastAcceptFailure() {
+    return lastAcceptFailure;
+  }
+
+  /**
+   * Close the server channel, the group is owned by the caller and is not shut down
+   */
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  /**
+   * One connection, its buffer comes from the shared pool
+   */
+  private static class Session {
+
+    final AsyncEchoServer server;
+    final AsynchronousSocketChannel socket;
+    final PooledBuffer pooled = BufferPool.shared().acquire(1024);
+
+    Session(AsyncEchoServer server, AsynchronousSocketChannel socket) {
+      this.server = server;
+      this.socket = socket;
+    }
+
+    void read() {
+      ByteBuffer buffer = pooled.buffer();
+      buffer.clear();
+      if (server.readTimeout > 0) {
+        socket.read(buffer, server.readTimeout, TimeUnit.MILLISECONDS, this, READ);
+      } else {
+        socket.read(buffer, this, READ);
+      }
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Ignore
+      }
+      pooled.release();
+      server.connections.decrementAndGet();
+    }
+  }
+
+  private static final CompletionHandler<AsynchronousSocketChannel, AsyncEchoServer> ACCEPT =
+      new CompletionHandler<AsynchronousSocketChannel, AsyncEchoServer>() {
+
+    @Override
+    public void completed(AsynchronousSocketChannel socket, AsyncEchoServer server) {
+      // Accept the next connection first
+      server.channel.accept(server, this);
+      server.connections.incrementAndGet();
+      new Session(server, socket).read();
+    }
+
+    @Override
+    public void failed(Throwable exc, AsyncEchoServer server) {
+      if (server.channel.isOpen()) {
+        server.lastAcceptFailure = exc;
+        server.acceptFailures.incrementAndGet();
+        server.channel.accept(server, this);
+      }
+    }
+  };
+
+  private static final CompletionHandler<Integer, Session> READ = new CompletionHandler<Integer, Session>() {
+
+    @Override
+    public void completed(Integer readed, Session session) {
+      if (readed == -1) {
+        session.close();
+        return;
+      }
+      ByteBuffer buffer = session.pooled.buffer();
+      buffer.flip();
+      session.socket.write(buffer, session, WRITE);
+    }
+
+    @Override
+    public void failed(Throwable exc, Session session) {
+      // InterruptedByTimeoutException if the read timeout expired
+      session.close();
+    }
+  };
+
+  private static final CompletionHandler<Integer, Session> WRITE = new CompletionHandler<Integer, Session>() {
+
+    @Override
+    public void completed(Integer written, Session session) {
+      ByteBuffer buffer = session.pooled.buffer();
+      if (buffer.hasRemaining()) {
+        // Partial write, only one write may be pending at a time
+        session.socket.write(buffer, session, this);
+        return;
+      }
+      session.read();
+    }
+
+    @Override
+    public void failed(Throwable exc, Session session) {
+      session.close();
+    }
+  };
+}
@@ -0,0 +1,171 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class AsyncEchoServerTest {
+
+  @Test
+  public void channelGroups() throws Exception {
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    AsynchronousChannelGroup[] groups = {
+        AsynchronousChannelGroup.withFixedThreadPool(cores, Executors.defaultThreadFactory()),
+        AsynchronousChannelGroup.withCachedThreadPool(Executors.newCachedThreadPool(), 1),
+        AsynchronousChannelGroup.withThreadPool(Executors.newFixedThreadPool(cores))
+    };
+    for (AsynchronousChannelGroup group : groups) {
+      try (AsyncEchoServer server = new AsyncEchoServer(new InetSocketAddress("127.0.0.1", 0), group)) {
+        server.start();
+        try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+          socket.write(ByteBuffer.wrap("Hello !".getBytes()));
+          ByteBuffer buffer = ByteBuffer.allocate(7);
+          while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+          }
+          assertEquals("Hello !", new String(buffer.array()));
+        }
+      } finally {
+        group.shutdownNow();
+        group.awaitTermination(5, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  @Test
+  public void thousandsOfConnections() throws Exception {
+
+    AsynchronousChannelGroup group = AsynchronousChannelGroup.withFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), Executors.defaultThreadFactory());
+    try (AsyncEchoServer server = new AsyncEchoServer(new InetSocketAddress("127.0.0.1", 0), group)) {
+      server.start();
+
+      // All of them are open at the same time
+      List<SocketChannel> sockets = new ArrayList<>();
+      try {
+        for (int i = 0; i < 2000; i++) {
+          sockets.add(SocketChannel.open(server.getLocalAddress()));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        for (SocketChannel socket : sockets) {
+          buffer.clear();
+          socket.write(buffer);
+        }
+        for (SocketChannel socket : sockets) {
+          buffer.clear();
+          while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+          }
+        }
+        assertEquals(2000, server.connections());
+      } finally {
+        for (SocketChannel socket : sockets) {
+          socket.close();
+        }
+      }
+    } finally {
+      group.shutdownNow();
+    }
+  }
+
+  @Test
+  public void compareWithFutureServer() throws Exception {
+
+    // 100 concurrent clients, 200 echoes each
+    AsynchronousChannelGroup group = AsynchronousChannelGroup.withFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), Executors.defaultThreadFactory());
+    try (AsyncEchoServer server = new AsyncEchoServer(new InetSocketAddress("127.0.0.1", 0), group)) {
+      server.start();
+      long elapsed = load(server.getLocalAddress(), 100, 200);
+      System.out.println("CompletionHandler server: " + elapsed + " ms");
+    } finally {
+      group.shutdownNow();
+    }
+
+    // Same as AsyncChannelTest.asyncEchoServer(), one client at a time
+    final AsynchronousServerSocketChannel channel = AsynchronousServerSocketChannel.open();
+    channel.bind(new InetSocketAddress("127.0.0.1", 0), 1024);
+    Thread futureServer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (true) {
+            Future<AsynchronousSocketChannel> result = channel.accept();
+            try (AsynchronousSocketChannel socket = result.get()) {
+              ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+              while (socket.read(buffer).get() != -1) {
+                buffer.flip();
+                socket.write(buffer).get();
+                if (buffer.hasRemaining()) {
+                  buffer.compact();
+                } else {
+                  buffer.clear();
+                }
+              }
+            }
+          }
+        } catch (Exception e) {
+          // Closed
+        }
+      }
+    });
+    futureServer.start();
+    try {
+      long elapsed = load((InetSocketAddress) channel.getLocalAddress(), 100, 200);
+      System.out.println("Future server: " + elapsed + " ms");
+    } finally {
+      channel.close();
+      futureServer.join();
+    }
+  }
+
+  /**
+   * Returns the milliseconds until every client got all of its echoes
+   */
+  private long load(final InetSocketAddress address, int clients, final int messages) throws Exception {
+
+    final CountDownLatch done = new CountDownLatch(clients);
+    long start = System.nanoTime();
+    for (int i = 0; i < clients; i++) {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try (SocketChannel socket = SocketChannel.open(address)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            for (int j = 0; j < messages; j++) {
+              buffer.clear();
+              socket.write(buffer);
+              buffer.clear();
+              while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+              }
+            }
+          } catch (IOException e) {
+            System.out.println("Client failed: " + e);
+          } finally {
+            done.countDown();
+          }
+        }
+      }).start();
+    }
+    done.await();
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+}
@@ -0,0 +1,194 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reads a file with a number of positional reads in flight, so the device always has
+ * requests queued, and hands the chunks out in file order. Chunk k is read into slot
+ * k % inFlight, once the caller moves on to the next chunk the slot is reused for the
+ * read of chunk k + inFlight.
+ * <p>
+ * The completions run on the executor the channel is opened with, the caller only
+ * waits for the chunk it asks for. Not for use by several reading threads at once.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class AsyncFileReader implements Closeable {
+
+  private static final CompletionHandler<Integer, Slot> READ = new ReadHandler();
+
+  /**
+   * A buffer and the read filling it
+   */
+  private static class Slot {
+
+    final AsyncFileReader reader;
+    final PooledBuffer buffer;
+    long position;
+    boolean reading;
+    Throwable failure;
+
+    Slot(AsyncFileReader reader, PooledBuffer buffer) {
+      this.reader = reader;
+      this.buffer = buffer;
+    }
+  }
+
+  private final AsynchronousFileChannel channel;
+  private final long size;
+  private final int chunkSize;
+  private final Slot[] slots;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition completed = lock.newCondition();
+  private long nextChunk;
+  private long chunks;
+  private Slot delivered;
+  private boolean closed;
+
+  /**
+   * @param executor runs the completions, see AsynchronousFileChannel.open
+   * @param inFlight the number of reads issued ahead of the caller
+   */
+  public AsyncFileReader(Path path, ExecutorService executor, int chunkSize, int inFlight) throws IOException {
+    if (chunkSize < 1 || inFlight < 1) {
+      throw new IllegalArgumentException("chunkSize: " + chunkSize + ", inFlight: " + inFlight);
+    }
+    this.channel = AsynchronousFileChannel.open(path, Collections.singleton(StandardOpenOption.READ), executor);
+    this.size = channel.size();
+    this.chunkSize = chunkSize;
+    this.chunks = (size + chunkSize - 1) / chunkSize;
+    this.slots = new Slot[(int) Math.min(inFlight, Math.max(1, chunks))];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = new Slot(this, BufferPool.shared().acquire(chunkSize));
+    }
+    for (int i = 0; i < slots.length && i < chunks; i++) {
+      issue(slots[i], (long) i * chunkSize);
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the next chunk, null at the end of the file. The chunk is valid until the
+   * next call, which also queues the read of a later chunk into its buffer.
+   *
+   * @throws EOFException if the file got shorter while reading
+   */
+  public ByteBuffer next() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IOException("Reader closed");
+      }
+      if (delivered != null) {
+        long ahead = nextChunk + slots.length - 1;
+        if (ahead < chunks) {
+          issue(delivered, ahead * chunkSize);
+        }
+        delivered = null;
+      }
+      if (nextChunk == chunks) {
+        return null;
+      }
+      Slot slot = slots[(int) (nextChunk % slots.length)];
+      while (slot.reading) {
+        completed.awaitUninterruptibly();
+      }
+      if (slot.failure != null) {
+        Throwable failure = slot.failure;
+        chunks = nextChunk;
+        throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+      }
+      nextChunk++;
+      delivered = slot;
+      ByteBuffer buffer = slot.buffer.buffer();
+      buffer.flip();
+      return buffer;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void issue(Slot slot, long position) {
+    ByteBuffer buffer = slot.buffer.buffer();
+    buffer.clear();
+    buffer.limit((int) Math.min(chunkSize, size - position));
+    slot.position = position;
+    slot.reading = true;
+    slot.failure = null;
+    channel.read(buffer, position, slot, READ);
+  }
+
+  private void complete(Slot slot, Throwable failure) {
+    lock.lock();
+    try {
+      slot.failure = failure;
+      slot.reading = false;
+      completed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the reads in flight, their buffers are still written to, then closes
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (Slot slot : slots) {
+        while (slot.reading) {
+          completed.awaitUninterruptibly();
+        }
+        slot.buffer.release();
+      }
+    } finally {
+      lock.unlock();
+    }
+    channel.close();
+  }
+
+  private static class ReadHandler implements CompletionHandler<Integer, Slot> {
+
+    @Override
+    public void completed(Integer readed, Slot slot) {
+      ByteBuffer buffer = slot.buffer.buffer();
+      if (readed == -1 && buffer.hasRemaining()) {
+        slot.reader.complete(slot, new EOFException("File ends at " + (slot.position + buffer.position())));
+      } else if (buffer.hasRemaining()) {
+        // A short read, the rest of the chunk comes next
+        try {
+          slot.reader.channel.read(buffer, slot.position + buffer.position(), slot, this);
+        } catch (RuntimeException e) {
+          slot.reader.complete(slot, e);
+        }
+      } else {
+        slot.reader.complete(slot, null);
+      }
+    }
+
+    @Override
+    public void failed(Throwable exc, Slot slot) {
+      slot.reader.complete(slot, exc);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class AsyncFileReaderTest {
+
+  @Test
+  public void chunksInOrder() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Path path = Files.createTempFile("async", ".bin");
+    try {
+      byte[] content = new byte[5 * 1024 * 1024 + 123];
+      new Random(1).nextBytes(content);
+      Files.write(path, content);
+
+      for (int inFlight : new int[] { 1, 3, 16 }) {
+        try (AsyncFileReader reader = new AsyncFileReader(path, executor, 4096, inFlight)) {
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          ByteBuffer chunk;
+          while ((chunk = reader.next()) != null) {
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            out.write(bytes);
+          }
+          assertNull(reader.next());
+          assertArrayEquals("inFlight " + inFlight, content, out.toByteArray());
+        }
+      }
+
+      // Empty file
+      Files.write(path, new byte[0]);
+      try (AsyncFileReader reader = new AsyncFileReader(path, executor, 4096, 4)) {
+        assertEquals(0, reader.size());
+        assertNull(reader.next());
+      }
+    } finally {
+      executor.shutdown();
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Sequential FileChannel reads against reads in flight, size in MB with -DasyncFileReader.size
+   */
+  @Test
+  public void throughput() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Path path = Files.createTempFile("async", ".bin");
+    try {
+      long size = Long.getLong("asyncFileReader.size", 256) * 1024 * 1024;
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        for (long position = 0; position < size; position += buffer.capacity()) {
+          buffer.clear();
+          channel.write(buffer, position);
+        }
+      }
+      for (int round = 0; round < 2; round++) {
+        long start = System.nanoTime();
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+          ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+          int readed;
+          while ((readed = channel.read(buffer)) != -1) {
+            total += readed;
+            buffer.clear();
+          }
+        }
+        assertEquals(size, total);
+        StringBuilder line = new StringBuilder("FileChannel " + mbPerSecond(size, System.nanoTime() - start)
+            + " MB/s");
+        for (int inFlight : new int[] { 1, 4, 16 }) {
+          start = System.nanoTime();
+          total = 0;
+          try (AsyncFileReader reader = new AsyncFileReader(path, executor, 64 * 1024, inFlight)) {
+            ByteBuffer chunk;
+            while ((chunk = reader.next()) != null) {
+              total += chunk.remaining();
+            }
+          }
+          assertEquals(size, total);
+          line.append(", ").append(inFlight).append(" in flight ")
+              .append(mbPerSecond(size, System.nanoTime() - start)).append(" MB/s");
+        }
+        System.out.println(line);
+      }
+    } finally {
+      executor.shutdown();
+      Files.delete(path);
+    }
+  }
+
+  private static long mbPerSecond(long bytes, long nanos) {
+    return bytes * 1000000000L / nanos / (1024 * 1024);
+  }
+}
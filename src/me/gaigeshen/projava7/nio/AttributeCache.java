@@ -0,0 +1,324 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Answers Files.exists(), size(), getLastModifiedTime() and the like from memory for
+ * files asked about again and again. The attributes of a path are read once and kept
+ * until a watch event of its directory says the path changed, so there is no time to
+ * live and no stale answer beyond the delay of the watch service. The directory of every
+ * cached path is registered with the watch service, and cancelled again once none of
+ * its paths are cached.
+ * <p>
+ * At most maxEntries paths are kept, the least recently used goes first. Symbolic links
+ * and directories are not cached, a change of the target of a link or of the entries of
+ * a directory would not be seen in their parent.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class AttributeCache implements Closeable {
+
+  /**
+   * Attributes of a path, null ones for a path that does not exist
+   */
+  private static class Cached {
+
+    final Path dir;
+    final BasicFileAttributes attrs;
+    Boolean hidden;
+
+    Cached(Path dir, BasicFileAttributes attrs) {
+      this.dir = dir;
+      this.attrs = attrs;
+    }
+  }
+
+  /**
+   * A registered directory and the number of its cached paths
+   */
+  private static class Watched {
+
+    final WatchKey key;
+    int entries;
+
+    Watched(WatchKey key) {
+      this.key = key;
+    }
+  }
+
+  private final WatchService service;
+  private final Thread thread;
+  private final Map<Path, Cached> entries;
+  private final Map<Path, Watched> dirs = new HashMap<>();
+  private final Map<WatchKey, Path> keys = new HashMap<>();
+  // Counts the invalidations, a path read while one happened is not cached
+  private long invalidations;
+  private long hits;
+  private long misses;
+
+  public AttributeCache(final int maxEntries) throws IOException {
+    this.service = FileSystems.getDefault().newWatchService();
+    this.entries = new LinkedHashMap<Path, Cached>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, Cached> eldest) {
+        if (size() > maxEntries) {
+          released(eldest.getValue().dir);
+          return true;
+        }
+        return false;
+      }
+    };
+    this.thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          watch();
+        } catch (ClosedWatchServiceException e) {
+          // Closed
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, "attribute-cache");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public boolean exists(Path path) throws IOException {
+    return get(path).attrs != null;
+  }
+
+  public boolean isDirectory(Path path) throws IOException {
+    BasicFileAttributes attrs = get(path).attrs;
+    return attrs != null && attrs.isDirectory();
+  }
+
+  public boolean isRegularFile(Path path) throws IOException {
+    BasicFileAttributes attrs = get(path).attrs;
+    return attrs != null && attrs.isRegularFile();
+  }
+
+  /**
+   * @throws NoSuchFileException if the path does not exist
+   */
+  public long size(Path path) throws IOException {
+    return existing(path).attrs.size();
+  }
+
+  /**
+   * @throws NoSuchFileException if the path does not exist
+   */
+  public FileTime lastModifiedTime(Path path) throws IOException {
+    return existing(path).attrs.lastModifiedTime();
+  }
+
+  /**
+   * @throws NoSuchFileException if the path does not exist
+   */
+  public boolean isHidden(Path path) throws IOException {
+    Cached entry = existing(path);
+    if (entry.hidden == null) {
+      // A name check on Unix, the DOS attribute on Windows
+      entry.hidden = Files.isHidden(path);
+    }
+    return entry.hidden;
+  }
+
+  /**
+   * Returns the attributes, null if the path does not exist
+   */
+  public BasicFileAttributes readAttributes(Path path) throws IOException {
+    return get(path).attrs;
+  }
+
+  private Cached existing(Path path) throws IOException {
+    Cached entry = get(path);
+    if (entry.attrs == null) {
+      throw new NoSuchFileException(path.toString());
+    }
+    return entry;
+  }
+
+  private Cached get(Path path) throws IOException {
+    path = path.toAbsolutePath();
+    long seen;
+    synchronized (this) {
+      Cached entry = entries.get(path);
+      if (entry != null) {
+        hits++;
+        return entry;
+      }
+      misses++;
+      seen = invalidations;
+    }
+    Path dir = path.getParent();
+    // Registered before the read, so no change after it goes unnoticed
+    boolean watched = dir != null && watch(dir);
+    BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (NoSuchFileException e) {
+      attrs = null;
+    } catch (IOException e) {
+      if (watched) {
+        released(dir);
+      }
+      throw e;
+    }
+    if (attrs != null && attrs.isDirectory()) {
+      // Its time stamps change with its entries, the events of which are not watched
+      if (watched) {
+        released(dir);
+      }
+      return new Cached(dir, attrs);
+    }
+    if (attrs != null && attrs.isSymbolicLink()) {
+      if (watched) {
+        released(dir);
+      }
+      return new Cached(dir, Files.exists(path) ? Files.readAttributes(path, BasicFileAttributes.class) : null);
+    }
+    Cached entry = new Cached(dir, attrs);
+    synchronized (this) {
+      if (!watched || invalidations != seen || entries.containsKey(path)) {
+        // Possibly changed meanwhile, or cached by another thread
+        if (watched) {
+          released(dir);
+        }
+        return entry;
+      }
+      entries.put(path, entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Counts a cached path of the directory, registers the directory for the first one
+   *
+   * @return false if the directory can not be watched
+   */
+  private synchronized boolean watch(Path dir) {
+    Watched watched = dirs.get(dir);
+    if (watched == null) {
+      WatchKey key;
+      try {
+        key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+      } catch (IOException | ClosedWatchServiceException e) {
+        return false;
+      }
+      watched = new Watched(key);
+      dirs.put(dir, watched);
+      keys.put(key, dir);
+    }
+    watched.entries++;
+    return true;
+  }
+
+  /**
+   * Counts down the cached paths of the directory, cancels the key after the last one
+   */
+  private synchronized void released(Path dir) {
+    Watched watched = dirs.get(dir);
+    if (watched != null && --watched.entries == 0) {
+      dirs.remove(dir);
+      keys.remove(watched.key);
+      watched.key.cancel();
+    }
+  }
+
+  private void watch() throws InterruptedException {
+    while (true) {
+      WatchKey key = service.take();
+      synchronized (this) {
+        Path dir = keys.get(key);
+        invalidations++;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (dir == null) {
+            continue;
+          }
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            invalidate(dir);
+          } else {
+            remove(dir.resolve((Path) event.context()));
+          }
+        }
+        if (!key.reset() && dir != null) {
+          // The directory is gone
+          invalidate(dir);
+          Watched watched = dirs.remove(dir);
+          if (watched != null) {
+            keys.remove(watched.key);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Forgets all paths of the directory
+   */
+  private void invalidate(Path dir) {
+    Iterator<Map.Entry<Path, Cached>> it = entries.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Path, Cached> entry = it.next();
+      if (dir.equals(entry.getValue().dir)) {
+        it.remove();
+        released(dir);
+      }
+    }
+  }
+
+  private void remove(Path path) {
+    Cached entry = entries.remove(path);
+    if (entry != null) {
+      released(entry.dir);
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized int watchedDirectories() {
+    return dirs.size();
+  }
+
+  synchronized long hits() {
+    return hits;
+  }
+
+  synchronized long misses() {
+    return misses;
+  }
+
+  @Override
+  public void close() throws IOException {
+    service.close();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class AttributeCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void invalidatedByWatchEvents() throws Exception {
+
+    Path dir = folder.newFolder().toPath();
+    try (AttributeCache cache = new AttributeCache(1000)) {
+      Path file = Files.write(dir.resolve("config.properties"), new byte[10]);
+      Path missing = dir.resolve("later.properties");
+
+      assertTrue(cache.exists(file));
+      assertEquals(10, cache.size(file));
+      assertEquals(Files.getLastModifiedTime(file), cache.lastModifiedTime(file));
+      assertFalse(cache.isHidden(file));
+      assertFalse(cache.exists(missing));
+      assertEquals(2, cache.misses());
+      assertEquals(3, cache.hits());
+      assertEquals(1, cache.watchedDirectories());
+
+      Files.write(file, new byte[5], StandardOpenOption.APPEND);
+      Files.write(missing, new byte[1]);
+      long deadline = System.currentTimeMillis() + 10000;
+      while (cache.size(file) != 15 || !cache.exists(missing)) {
+        assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+
+      Files.delete(file);
+      while (cache.exists(file)) {
+        assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+      try {
+        cache.size(file);
+        assertTrue(false);
+      } catch (NoSuchFileException e) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void directoriesAreNotCached() throws Exception {
+
+    Path dir = folder.newFolder().toPath();
+    try (AttributeCache cache = new AttributeCache(1000)) {
+      Path sub = Files.createDirectory(dir.resolve("sub"));
+      FileTime modified = Files.getLastModifiedTime(sub);
+      assertTrue(cache.isDirectory(sub));
+      assertEquals(modified, cache.lastModifiedTime(sub));
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.watchedDirectories());
+
+      // Past the granularity of the time stamps
+      Thread.sleep(50);
+      // No event in the parent, the time is read again
+      Files.createFile(sub.resolve("x"));
+      assertNotEquals(modified, Files.getLastModifiedTime(sub));
+      assertEquals(Files.getLastModifiedTime(sub), cache.lastModifiedTime(sub));
+    }
+  }
+
+  @Test
+  public void leastRecentlyUsedGoesFirst() throws Exception {
+
+    List<Path> dirs = new ArrayList<>();
+    try (AttributeCache cache = new AttributeCache(100)) {
+      for (int d = 0; d < 4; d++) {
+        Path dir = folder.newFolder().toPath();
+        dirs.add(dir);
+        for (int i = 0; i < 50; i++) {
+          Files.createFile(dir.resolve("f" + i));
+        }
+      }
+      // Created before, their events would take the paths out again
+      for (Path dir : dirs) {
+        for (int i = 0; i < 50; i++) {
+          cache.exists(dir.resolve("f" + i));
+        }
+      }
+      assertEquals(100, cache.size());
+      // The paths of the first two directories are gone, so are their keys
+      assertEquals(2, cache.watchedDirectories());
+
+      long misses = cache.misses();
+      cache.exists(dirs.get(3).resolve("f0"));
+      assertEquals(misses, cache.misses());
+      cache.exists(dirs.get(0).resolve("f0"));
+      assertEquals(misses + 1, cache.misses());
+      assertEquals(3, cache.watchedDirectories());
+    }
+  }
+
+  /**
+   * Files.exists() and size() against the cache on the same few files, calls with
+   * -DattributeCache.calls
+   */
+  @Test
+  public void hotFiles() throws Exception {
+
+    int calls = Integer.getInteger("attributeCache.calls", 1000000);
+    Path dir = folder.newFolder().toPath();
+    try (AttributeCache cache = new AttributeCache(1000)) {
+      Path[] files = new Path[16];
+      for (int i = 0; i < files.length; i++) {
+        files[i] = Files.write(dir.resolve("asset" + i), new byte[i]);
+      }
+      for (int round = 0; round < 3; round++) {
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < calls; i++) {
+          Path file = files[i & 15];
+          if (Files.exists(file)) {
+            total += Files.size(file);
+          }
+        }
+        long uncached = System.nanoTime() - start;
+        start = System.nanoTime();
+        long cachedTotal = 0;
+        for (int i = 0; i < calls; i++) {
+          Path file = files[i & 15];
+          if (cache.exists(file)) {
+            cachedTotal += cache.size(file);
+          }
+        }
+        long cached = System.nanoTime() - start;
+        assertEquals(total, cachedTotal);
+        System.out.println(calls + " x exists+size, Files " + uncached / 1000000 + " ms, cache " + cached / 1000000
+            + " ms");
+      }
+      assertEquals(16, cache.misses());
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package me.gaigeshen.projava7.nio;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct byte buffers in power of two size classes. Buffers of one class are
+ * sliced from big direct arenas, every thread keeps a small cache per class in front
+ * of the shared free lists. Requests above the largest class are not pooled.
+ * <p>
+ * The cache of a thread that ended is not lost with it: when another thread starts
+ * using the pool, and when a size class runs out before a new arena is sliced, the
+ * caches of the ended threads are drained into the shared free lists.
+ * <p>
+ * With leak detection enabled the stack trace of every acquire is kept until the
+ * buffer is released, so {@link #leaks()} tells where the outstanding buffers come from.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public final class BufferPool {
+
+  private static final int MIN_SHIFT = 8;
+  private static final int MAX_SHIFT = 16;
+  private static final int CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+  private static final int THREAD_CACHE = 64;
+
+  /**
+   * Thread.isVirtual() if the runtime has virtual threads, they are too many and too
+   * short-lived to keep a cache each, so they use the shared free lists only
+   */
+  private static final Method IS_VIRTUAL = isVirtualMethod();
+
+  private static final BufferPool SHARED = new BufferPool(4 * 1024 * 1024,
+      Boolean.getBoolean("bufferPool.leakDetection"));
+
+  /**
+   * The pool shared by the socket and async servers
+   */
+  public static BufferPool shared() {
+    return SHARED;
+  }
+
+  private final int arenaSize;
+  private final boolean leakDetection;
+  private final List<Queue<PooledBuffer>> free = new ArrayList<>(CLASSES);
+  // Every pooled buffer, kept for leak detection only
+  private final List<PooledBuffer> all = new CopyOnWriteArrayList<>();
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private final AtomicInteger arenas = new AtomicInteger();
+  // The cache of every thread, so the ones of ended threads can be drained
+  private final Queue<ThreadCache> threadCaches = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<List<ArrayDeque<PooledBuffer>>> caches = new ThreadLocal<List<ArrayDeque<PooledBuffer>>>() {
+    @Override
+    protected List<ArrayDeque<PooledBuffer>> initialValue() {
+      if (isVirtual(Thread.currentThread())) {
+        return null;
+      }
+      List<ArrayDeque<PooledBuffer>> cache = new ArrayList<>(CLASSES);
+      for (int i = 0; i < CLASSES; i++) {
+        cache.add(new ArrayDeque<PooledBuffer>(THREAD_CACHE));
+      }
+      // Keeps the registry to the threads alive, give or take the ones ended since
+      drainEnded();
+      threadCaches.add(new ThreadCache(Thread.currentThread(), cache));
+      return cache;
+    }
+  };
+
+  /**
+   * The cache of a thread, the thread weakly held so the registry does not keep it
+   */
+  private static final class ThreadCache {
+
+    final WeakReference<Thread> thread;
+    final List<ArrayDeque<PooledBuffer>> cache;
+
+    ThreadCache(Thread thread, List<ArrayDeque<PooledBuffer>> cache) {
+      this.thread = new WeakReference<>(thread);
+      this.cache = cache;
+    }
+
+    boolean ended() {
+      Thread owner = thread.get();
+      return owner == null || !owner.isAlive();
+    }
+  }
+
+  public BufferPool(int arenaSize, boolean leakDetection) {
+    if (arenaSize < (1 << MAX_SHIFT)) {
+      throw new IllegalArgumentException("arenaSize: " + arenaSize);
+    }
+    this.arenaSize = arenaSize;
+    this.leakDetection = leakDetection;
+    for (int i = 0; i < CLASSES; i++) {
+      free.add(new ConcurrentLinkedQueue<PooledBuffer>());
+    }
+  }
+
+  /**
+   * Returns a cleared buffer with at least the given capacity, its limit is set to
+   * the requested capacity
+   */
+  public PooledBuffer acquire(int capacity) {
+    int sizeClass = sizeClass(capacity);
+    PooledBuffer pooled;
+    if (sizeClass < 0) {
+      pooled = new PooledBuffer(this, ByteBuffer.allocateDirect(capacity), -1);
+    } else {
+      List<ArrayDeque<PooledBuffer>> threadCache = caches.get();
+      pooled = threadCache != null ? threadCache.get(sizeClass).pollLast() : null;
+      if (pooled == null) {
+        pooled = free.get(sizeClass).poll();
+      }
+      if (pooled == null && drainEnded()) {
+        pooled = free.get(sizeClass).poll();
+      }
+      if (pooled == null) {
+        pooled = allocate(sizeClass);
+      }
+    }
+    pooled.acquired(leakDetection ? new Throwable("Acquired here") : null);
+    outstanding.incrementAndGet();
+    ByteBuffer buffer = pooled.buffer();
+    buffer.clear();
+    buffer.limit(capacity);
+    return pooled;
+  }
+
+  void release(PooledBuffer pooled) {
+    outstanding.decrementAndGet();
+    int sizeClass = pooled.sizeClass();
+    if (sizeClass < 0) {
+      return;
+    }
+    List<ArrayDeque<PooledBuffer>> threadCache = caches.get();
+    if (threadCache == null) {
+      free.get(sizeClass).add(pooled);
+      return;
+    }
+    ArrayDeque<PooledBuffer> cache = threadCache.get(sizeClass);
+    if (cache.size() == THREAD_CACHE) {
+      // Hand half of the cache over to the other threads
+      Queue<PooledBuffer> shared = free.get(sizeClass);
+      for (int i = 0; i < THREAD_CACHE / 2; i++) {
+        shared.add(cache.pollFirst());
+      }
+    }
+    cache.addLast(pooled);
+  }
+
+  /**
+   * Moves the caches of the ended threads to the shared free lists, returns true if
+   * there was any. Nothing else touches the cache of an ended thread, and removing it
+   * from the registry lets only one thread drain it.
+   */
+  private boolean drainEnded() {
+    boolean drained = false;
+    for (ThreadCache threadCache : threadCaches) {
+      if (threadCache.ended() && threadCaches.remove(threadCache)) {
+        for (int i = 0; i < CLASSES; i++) {
+          free.get(i).addAll(threadCache.cache.get(i));
+        }
+        drained = true;
+      }
+    }
+    return drained;
+  }
+
+  /**
+   * Slice a new arena into buffers of the size class, returns one of them
+   */
+  private PooledBuffer allocate(int sizeClass) {
+    int size = 1 << (sizeClass + MIN_SHIFT);
+    ByteBuffer arena = ByteBuffer.allocateDirect(arenaSize);
+    arenas.incrementAndGet();
+    Queue<PooledBuffer> shared = free.get(sizeClass);
+    PooledBuffer first = null;
+    List<PooledBuffer> slices = leakDetection ? new ArrayList<PooledBuffer>(arenaSize / size) : null;
+    for (int offset = 0; offset + size <= arenaSize; offset += size) {
+      arena.limit(offset + size).position(offset);
+      PooledBuffer pooled = new PooledBuffer(this, arena.slice(), sizeClass);
+      if (slices != null) {
+        slices.add(pooled);
+      }
+      if (first == null) {
+        first = pooled;
+      } else {
+        shared.add(pooled);
+      }
+    }
+    if (slices != null) {
+      // One copy of the array per arena, not one per slice
+      all.addAll(slices);
+    }
+    return first;
+  }
+
+  private static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (Boolean) IS_VIRTUAL.invoke(thread);
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+  }
+
+  private static Method isVirtualMethod() {
+    try {
+      return Thread.class.getMethod("isVirtual");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static int sizeClass(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity: " + capacity);
+    }
+    if (capacity > (1 << MAX_SHIFT)) {
+      return -1;
+    }
+    int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+    return Math.max(shift, MIN_SHIFT) - MIN_SHIFT;
+  }
+
+  /**
+   * Returns the number of buffers acquired and not released yet
+   */
+  public int outstanding() {
+    return outstanding.get();
+  }
+
+  /**
+   * Returns the number of arenas allocated so far
+   */
+  public int arenas() {
+    return arenas.get();
+  }
+
+  /**
+   * Returns where the outstanding pooled buffers were acquired, only available with
+   * leak detection enabled
+   */
+  public List<Throwable> leaks() {
+    List<Throwable> result = new ArrayList<>();
+    for (PooledBuffer pooled : all) {
+      Throwable trace = pooled.trace();
+      if (pooled.inUse() && trace != null) {
+        result.add(trace);
+      }
+    }
+    return result;
+  }
+}
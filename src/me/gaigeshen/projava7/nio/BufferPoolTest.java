@@ -0,0 +1,150 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class BufferPoolTest {
+
+  @Test
+  public void sizeClasses() throws Exception {
+
+    BufferPool pool = new BufferPool(1024 * 1024, false);
+
+    try (PooledBuffer small = pool.acquire(100); PooledBuffer page = pool.acquire(4096);
+        PooledBuffer odd = pool.acquire(5000); PooledBuffer huge = pool.acquire(1024 * 1024)) {
+      // Limit is the requested capacity, capacity is the size class
+      assertEquals(100, small.buffer().limit());
+      assertEquals(256, small.buffer().capacity());
+      assertEquals(4096, page.buffer().capacity());
+      assertEquals(8192, odd.buffer().capacity());
+      assertTrue(odd.buffer().isDirect());
+      // Not pooled
+      assertEquals(1024 * 1024, huge.buffer().capacity());
+      assertEquals(4, pool.outstanding());
+    }
+    assertEquals(0, pool.outstanding());
+  }
+
+  @Test
+  public void steadyState() throws Exception {
+
+    BufferPool pool = new BufferPool(1024 * 1024, false);
+
+    // The released buffer comes back from the thread cache
+    PooledBuffer first = pool.acquire(2048);
+    first.release();
+    PooledBuffer second = pool.acquire(2048);
+    assertSame(first, second);
+    second.release();
+
+    // No new arena once the working set fits
+    pool.acquire(1024).release();
+    int arenas = pool.arenas();
+    for (int i = 0; i < 100000; i++) {
+      PooledBuffer a = pool.acquire(1024);
+      PooledBuffer b = pool.acquire(1024);
+      assertNotSame(a.buffer(), b.buffer());
+      a.release();
+      b.release();
+    }
+    assertEquals(arenas, pool.arenas());
+  }
+
+  @Test
+  public void crossThreadRelease() throws Exception {
+
+    final BufferPool pool = new BufferPool(1024 * 1024, false);
+    final List<PooledBuffer> buffers = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      buffers.add(pool.acquire(512));
+    }
+    // Released by another thread, they end up in the shared free list
+    Thread releaser = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (PooledBuffer buffer : buffers) {
+          buffer.release();
+        }
+      }
+    });
+    releaser.start();
+    releaser.join();
+    assertEquals(0, pool.outstanding());
+  }
+
+  @Test
+  public void endedThreadCacheReused() throws Exception {
+
+    final BufferPool pool = new BufferPool(1024 * 1024, false);
+    // One arena of 1 KB buffers
+    final int count = 1024;
+    // Takes the whole arena and releases it, the last ones stay in its cache
+    Thread ended = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        List<PooledBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+          buffers.add(pool.acquire(1024));
+        }
+        for (PooledBuffer buffer : buffers) {
+          buffer.release();
+        }
+      }
+    });
+    ended.start();
+    ended.join();
+    assertEquals(1, pool.arenas());
+
+    List<PooledBuffer> buffers = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      buffers.add(pool.acquire(1024));
+    }
+    assertEquals(1, pool.arenas());
+    for (PooledBuffer buffer : buffers) {
+      buffer.release();
+    }
+  }
+
+  @Test
+  public void leakDetection() throws Exception {
+
+    BufferPool pool = new BufferPool(1024 * 1024, true);
+
+    PooledBuffer leaked = pool.acquire(1024);
+    pool.acquire(1024).release();
+
+    List<Throwable> leaks = pool.leaks();
+    assertEquals(1, leaks.size());
+    // Acquired here, by the test
+    StackTraceElement[] trace = leaks.get(0).getStackTrace();
+    assertEquals("acquire", trace[0].getMethodName());
+    assertEquals("leakDetection", trace[1].getMethodName());
+
+    leaked.release();
+    assertTrue(pool.leaks().isEmpty());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void releaseTwice() throws Exception {
+
+    BufferPool pool = new BufferPool(1024 * 1024, false);
+    PooledBuffer buffer = pool.acquire(1024);
+    ByteBuffer bytes = buffer.buffer();
+    bytes.putInt(1);
+    buffer.release();
+    buffer.release();
+  }
+}
@@ -0,0 +1,209 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A socket channel served by one {@link Reactor} of the {@link MultiReactorServer}.
+ * Apart from {@link #close()} the methods must be called on the reactor thread.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class Connection {
+
+  private final SocketChannel channel;
+  private final Reactor reactor;
+  private SelectionKey key;
+  private final WriteQueue queue = new WriteQueue();
+  private boolean readPaused;
+  private Object attachment;
+  private volatile boolean closed;
+
+  // Idle tracking on the reactor thread: when the connection read last, when its
+  // write queue made progress last, and when the handler was notified last
+  long lastRead;
+  long lastWrite;
+  long readNotified;
+  long writeNotified;
+  long allNotified;
+  final TimingWheel.Timeout idleTimeout = new TimingWheel.Timeout() {
+    @Override
+    protected void expired(long now) {
+      reactor.idle(Connection.this, now);
+    }
+  };
+
+  Connection(SocketChannel channel, Reactor reactor) {
+    this.channel = channel;
+    this.reactor = reactor;
+  }
+
+  void register(SelectionKey key) {
+    this.key = key;
+  }
+
+  public SocketChannel channel() {
+    return channel;
+  }
+
+  public SocketAddress remoteAddress() {
+    try {
+      return channel.getRemoteAddress();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  public Object attachment() {
+    return attachment;
+  }
+
+  public void attach(Object attachment) {
+    this.attachment = attachment;
+  }
+
+  /**
+   * Write as many bytes as the socket accepts, the remaining bytes are copied to the
+   * write queue and flushed on OP_WRITE. Reading from the peer is paused while the
+   * queue is above its high-water mark.
+   */
+  public void write(ByteBuffer src) throws IOException {
+    if (queue.isEmpty()) {
+      wrote(channel.write(src));
+      if (!src.hasRemaining()) {
+        return;
+      }
+    }
+    PooledBuffer copy = BufferPool.shared().acquire(src.remaining());
+    copy.buffer().put(src).flip();
+    enqueue(copy);
+  }
+
+  /**
+   * Same as {@link #write(ByteBuffer)} without the copy, the connection owns the
+   * buffer from now on and releases it once written
+   */
+  public void write(PooledBuffer src) throws IOException {
+    if (queue.isEmpty()) {
+      wrote(channel.write(src.buffer()));
+      if (!src.buffer().hasRemaining()) {
+        src.release();
+        return;
+      }
+    }
+    enqueue(src);
+  }
+
+  /**
+   * Send the file region without copying it through user space. Whatever the socket
+   * does not accept now is sent on OP_WRITE; the connection owns the region from now
+   * on and closes it when done.
+   */
+  public void sendFile(FileRegion region) throws IOException {
+    boolean empty = queue.isEmpty();
+    if (empty) {
+      try {
+        wrote(region.transferTo(channel));
+      } catch (IOException | RuntimeException e) {
+        // Truncated file or reset peer, the region is not queued so close it here
+        try {
+          region.close();
+        } catch (IOException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        throw e;
+      }
+      if (region.remaining() == 0) {
+        region.close();
+        return;
+      }
+    }
+    queue.offer(region);
+    if (empty) {
+      lastWrite = reactor.now();
+      reactor.scheduleIdle(this);
+    }
+    updateInterest();
+  }
+
+  private void wrote(long written) {
+    if (written > 0) {
+      lastWrite = reactor.now();
+      reactor.metrics().bytesOut.getAndAdd(written);
+    }
+  }
+
+  private void enqueue(PooledBuffer src) throws IOException {
+    boolean empty = queue.isEmpty();
+    if (!queue.offer(src)) {
+      src.release();
+      throw new IOException("Write queue overflow: " + queue.queuedBytes() + " bytes queued");
+    }
+    reactor.metrics().queueDepth.record(queue.queuedBytes());
+    if (empty) {
+      // The write deadline starts now
+      lastWrite = reactor.now();
+      reactor.scheduleIdle(this);
+    }
+    if (queue.isAboveHighWaterMark()) {
+      readPaused = true;
+    }
+    updateInterest();
+  }
+
+  /**
+   * Called by the reactor when the socket is writable again
+   */
+  void flush() throws IOException {
+    wrote(queue.flush(channel));
+    if (readPaused && queue.isBelowLowWaterMark()) {
+      readPaused = false;
+    }
+    updateInterest();
+  }
+
+  /**
+   * Returns whether buffers or file regions wait in the write queue
+   */
+  public boolean hasPendingWrites() {
+    return !queue.isEmpty();
+  }
+
+  /**
+   * Returns the number of bytes waiting in the write queue, not counting file regions
+   */
+  public long queuedBytes() {
+    return queue.queuedBytes();
+  }
+
+  private void updateInterest() {
+    int ops = (readPaused ? 0 : SelectionKey.OP_READ) | (queue.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+    if (key.isValid() && key.interestOps() != ops) {
+      key.interestOps(ops);
+    }
+  }
+
+  public boolean isOpen() {
+    return !closed && channel.isOpen();
+  }
+
+  public void close() {
+    reactor.close(this);
+  }
+
+  /**
+   * Returns false if the connection was closed already
+   */
+  boolean markClosed() {
+    if (closed) {
+      return false;
+    }
+    closed = true;
+    queue.clear();
+    return true;
+  }
+}
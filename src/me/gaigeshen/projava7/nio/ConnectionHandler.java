@@ -0,0 +1,55 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Callbacks of the {@link MultiReactorServer}, all of them are invoked on the
+ * reactor thread which owns the connection, so the implementation must never block.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public interface ConnectionHandler {
+
+  /**
+   * The connection was accepted and registered with its reactor
+   */
+  void opened(Connection connection) throws IOException;
+
+  /**
+   * Bytes were read from the connection, the buffer is ready for get operations
+   * and is reused by the reactor after this method returns
+   */
+  void read(Connection connection, ByteBuffer buffer) throws IOException;
+
+  /**
+   * The connection was closed, by the peer or by the server
+   */
+  void closed(Connection connection);
+
+  /**
+   * Nothing happened on the connection within the timeout configured with
+   * {@link MultiReactorServer#setIdleTimeouts(long, long, long, java.util.concurrent.TimeUnit)}.
+   * Closes the connection by default; if it stays open, the handler is notified
+   * again after another timeout.
+   */
+  default void idle(Connection connection, IdleState state) throws IOException {
+    connection.close();
+  }
+
+  enum IdleState {
+    /**
+     * Nothing was read
+     */
+    READER_IDLE,
+    /**
+     * Queued bytes could not be written
+     */
+    WRITER_IDLE,
+    /**
+     * Nothing was read or written
+     */
+    ALL_IDLE
+  }
+}
@@ -0,0 +1,58 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Frames terminated by a delimiter byte, for example '\n' for line based protocols.
+ * The delimiter is not part of the decoded payload.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class DelimiterCodec implements FrameCodec {
+
+  private final byte delimiter;
+  private final int maxPayloadLength;
+
+  public DelimiterCodec(byte delimiter, int maxPayloadLength) {
+    if (maxPayloadLength < 0 || maxPayloadLength == Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("maxPayloadLength: " + maxPayloadLength);
+    }
+    this.delimiter = delimiter;
+    this.maxPayloadLength = maxPayloadLength;
+  }
+
+  @Override
+  public int decode(ByteBuffer in) throws IOException {
+    int start = in.position();
+    int limit = in.limit();
+    // Never scan further than the longest frame
+    int end = Math.min(limit, start + maxPayloadLength + 1);
+    for (int i = start; i < end; i++) {
+      if (in.get(i) == delimiter) {
+        in.limit(i).position(start);
+        return i + 1;
+      }
+    }
+    if (end - start > maxPayloadLength) {
+      throw new IOException("No delimiter found within " + maxPayloadLength + " bytes");
+    }
+    return -1;
+  }
+
+  @Override
+  public int encodedLength(int payloadLength) {
+    return payloadLength + 1;
+  }
+
+  @Override
+  public void encode(ByteBuffer payload, ByteBuffer out) {
+    out.put(payload).put(delimiter);
+  }
+
+  @Override
+  public int maxFrameLength() {
+    return maxPayloadLength + 1;
+  }
+}
@@ -0,0 +1,442 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches a directory and all directories below it, new subdirectories are registered as
+ * they appear. Unlike WatchRafaelNadal the events are not handed out one by one: the
+ * events of a path are merged while they keep coming, and once the tree has been quiet
+ * for the debounce time, or at the latest after ten times that, the changes go out as
+ * one batch.
+ * <p>
+ * The watcher keeps a snapshot of every directory, size and modification time of its
+ * entries. When the watch service drops events of a directory, OVERFLOW, the directory is
+ * read again and compared with the snapshot. A deleted directory is reported alone, its
+ * entries are gone with it. A path that comes and goes before its batch is sent is not
+ * reported at all.
+ * <p>
+ * The batches are delivered on the executor, one after the other in order, so a slow
+ * listener never holds up the thread taking the events.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class DirectoryWatcher implements Closeable {
+
+  public enum Change {
+    CREATED, MODIFIED, DELETED
+  }
+
+  public interface ChangeListener {
+
+    /**
+     * @param changes the changed paths in the order they changed first. A RuntimeException
+     *          is counted and dropped, the other listeners still get the batch
+     */
+    void changed(Map<Path, Change> changes);
+  }
+
+  /**
+   * What the snapshot knows of an entry
+   */
+  private static class Stamp {
+
+    final long size;
+    final long modified;
+    final boolean directory;
+
+    Stamp(BasicFileAttributes attrs) {
+      this.size = attrs.size();
+      this.modified = attrs.lastModifiedTime().toMillis();
+      this.directory = attrs.isDirectory();
+    }
+
+    boolean sameAs(Stamp other) {
+      return size == other.size && modified == other.modified && directory == other.directory;
+    }
+  }
+
+  private final Path root;
+  private final Executor executor;
+  private final long debounce;
+  private final WatchService service;
+  private final Map<WatchKey, Path> keys = new HashMap<>();
+  // Directory to its entries by name, used by the watcher thread only
+  private final Map<Path, Map<Path, Stamp>> snapshot = new HashMap<>();
+  private final Map<Path, Change> pending = new LinkedHashMap<>();
+  private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+  private final Queue<Map<Path, Change>> batches = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean delivering = new AtomicBoolean();
+  private final AtomicLong listenerFailures = new AtomicLong();
+  private volatile boolean closed;
+  private volatile long rescans;
+  private Thread thread;
+
+  /**
+   * Registers the tree, the changes are watched for once started
+   *
+   * @param executor runs the listeners
+   */
+  public DirectoryWatcher(Path root, Executor executor, long debounce, TimeUnit unit) throws IOException {
+    this.root = root;
+    this.executor = executor;
+    this.debounce = unit.toNanos(debounce);
+    this.service = FileSystems.getDefault().newWatchService();
+    try {
+      registerTree(root, false);
+    } catch (IOException e) {
+      service.close();
+      throw e;
+    }
+  }
+
+  public void subscribe(ChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  public void unsubscribe(ChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  public synchronized void start() {
+    if (thread != null) {
+      throw new IllegalStateException("Already started");
+    }
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          watch();
+        } catch (ClosedWatchServiceException e) {
+          // Closed
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, "directory-watcher-" + root.getFileName());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void watch() throws InterruptedException {
+    long first = 0;
+    long last = 0;
+    while (!closed) {
+      WatchKey key;
+      if (pending.isEmpty()) {
+        key = service.take();
+      } else {
+        long now = System.nanoTime();
+        long deadline = Math.min(last + debounce, first + debounce * 10);
+        key = deadline > now ? service.poll(deadline - now, TimeUnit.NANOSECONDS) : service.poll();
+      }
+      if (key != null) {
+        boolean empty = pending.isEmpty();
+        process(key);
+        if (empty && !pending.isEmpty()) {
+          first = System.nanoTime();
+        }
+        last = System.nanoTime();
+      }
+      if (!pending.isEmpty()) {
+        long now = System.nanoTime();
+        if (now - last >= debounce || now - first >= debounce * 10) {
+          flush();
+        }
+      }
+    }
+  }
+
+  private void process(WatchKey key) {
+    Path dir = keys.get(key);
+    if (dir == null) {
+      key.cancel();
+      return;
+    }
+    boolean overflow = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      WatchEvent.Kind<?> kind = event.kind();
+      if (kind == StandardWatchEventKinds.OVERFLOW) {
+        overflow = true;
+        continue;
+      }
+      Path path = dir.resolve((Path) event.context());
+      if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+        created(path);
+      } else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+        change(path, Change.MODIFIED);
+      } else {
+        deleted(path);
+      }
+    }
+    if (overflow) {
+      rescan(dir);
+    }
+    if (!key.reset()) {
+      keys.remove(key);
+      if (snapshot.containsKey(dir)) {
+        // Gone without an event from its parent yet
+        deleted(dir);
+      }
+    }
+  }
+
+  private void created(Path path) {
+    change(path, Change.CREATED);
+    BasicFileAttributes attrs = attributes(path);
+    if (attrs != null && attrs.isDirectory() && !snapshot.containsKey(path)) {
+      try {
+        // Whatever was created inside before the registration is found by the walk
+        registerTree(path, true);
+      } catch (IOException e) {
+        // Deleted meanwhile, its delete event follows
+      }
+    }
+  }
+
+  private void deleted(Path path) {
+    Map<Path, Stamp> removed = snapshot.remove(path);
+    if (removed != null) {
+      // A directory, forget the snapshots of the subtree
+      Iterator<Path> dirs = snapshot.keySet().iterator();
+      while (dirs.hasNext()) {
+        if (dirs.next().startsWith(path)) {
+          dirs.remove();
+        }
+      }
+    }
+    change(path, Change.DELETED);
+  }
+
+  /**
+   * Reads the directory again and reports the differences to the snapshot
+   */
+  private void rescan(Path dir) {
+    rescans++;
+    Map<Path, Stamp> before = snapshot.get(dir);
+    if (before == null) {
+      return;
+    }
+    Map<Path, Stamp> after = new HashMap<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path path : stream) {
+        BasicFileAttributes attrs = attributes(path);
+        if (attrs != null) {
+          after.put(path.getFileName(), new Stamp(attrs));
+        }
+      }
+    } catch (IOException e) {
+      // The directory itself is gone, its key is invalid then
+      return;
+    }
+    for (Map.Entry<Path, Stamp> entry : before.entrySet()) {
+      if (!after.containsKey(entry.getKey())) {
+        deleted(dir.resolve(entry.getKey()));
+      }
+    }
+    for (Map.Entry<Path, Stamp> entry : after.entrySet()) {
+      Stamp old = before.get(entry.getKey());
+      Path path = dir.resolve(entry.getKey());
+      if (old == null) {
+        created(path);
+      } else if (!old.sameAs(entry.getValue()) && !entry.getValue().directory) {
+        change(path, Change.MODIFIED);
+      }
+    }
+  }
+
+  /**
+   * Merges the change with the one pending for the path
+   */
+  private void change(Path path, Change change) {
+    Change previous = pending.get(path);
+    if (previous == null) {
+      pending.put(path, change);
+    } else if (previous == Change.CREATED && change == Change.DELETED) {
+      // Came and went within the batch
+      pending.remove(path);
+    } else if (previous == Change.DELETED && change == Change.CREATED) {
+      pending.put(path, Change.MODIFIED);
+    } else if (previous != Change.CREATED) {
+      pending.put(path, change);
+    }
+  }
+
+  /**
+   * Brings the snapshot up to date with one stat per changed path and hands the batch
+   * to the executor
+   */
+  private void flush() {
+    Map<Path, Change> batch = new LinkedHashMap<>(pending);
+    pending.clear();
+    Iterator<Map.Entry<Path, Change>> entries = batch.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<Path, Change> entry = entries.next();
+      Path path = entry.getKey();
+      Map<Path, Stamp> parent = snapshot.get(path.getParent());
+      boolean known = parent != null && parent.containsKey(path.getFileName());
+      BasicFileAttributes attrs = entry.getValue() == Change.DELETED ? null : attributes(path);
+      if (attrs == null) {
+        if (known) {
+          parent.remove(path.getFileName());
+          entry.setValue(Change.DELETED);
+        } else {
+          // Came and went before it was seen, or in a deleted directory
+          entries.remove();
+        }
+      } else if (parent != null) {
+        Stamp stamp = new Stamp(attrs);
+        Stamp old = parent.put(path.getFileName(), stamp);
+        if (entry.getValue() == Change.MODIFIED && old != null && old.directory && stamp.directory) {
+          // Only the entries of the directory changed, they are reported themselves
+          entries.remove();
+        }
+      }
+    }
+    if (batch.isEmpty() || listeners.isEmpty()) {
+      return;
+    }
+    batches.add(Collections.unmodifiableMap(batch));
+    deliver();
+  }
+
+  private void deliver() {
+    if (!delivering.compareAndSet(false, true)) {
+      return;
+    }
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Map<Path, Change> batch;
+          while ((batch = batches.poll()) != null) {
+            for (ChangeListener listener : listeners) {
+              try {
+                listener.changed(batch);
+              } catch (RuntimeException e) {
+                listenerFailures.incrementAndGet();
+              }
+            }
+          }
+        } finally {
+          delivering.set(false);
+        }
+        // Added after the last poll but before the flag was cleared
+        if (!batches.isEmpty()) {
+          deliver();
+        }
+      }
+    });
+  }
+
+  /**
+   * Registers the directories of the tree and takes their snapshots
+   *
+   * @param report whether the entries found are reported as created
+   */
+  private void registerTree(final Path start, final boolean report) throws IOException {
+    Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        keys.put(key, dir);
+        snapshot.put(dir, new HashMap<Path, Stamp>());
+        entry(dir, attrs);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        entry(file, attrs);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+        if (e instanceof NoSuchFileException && !file.equals(root)) {
+          // Deleted while walking
+          return FileVisitResult.CONTINUE;
+        }
+        throw e;
+      }
+
+      private void entry(Path path, BasicFileAttributes attrs) {
+        Map<Path, Stamp> parent = snapshot.get(path.getParent());
+        if (parent != null) {
+          parent.put(path.getFileName(), new Stamp(attrs));
+        }
+        if (report && !path.equals(start)) {
+          change(path, Change.CREATED);
+        }
+      }
+    });
+  }
+
+  private static BasicFileAttributes attributes(Path path) {
+    try {
+      return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  long rescans() {
+    return rescans;
+  }
+
+  /**
+   * Returns the number of batches a listener failed on
+   */
+  long listenerFailures() {
+    return listenerFailures.get();
+  }
+
+  /**
+   * Stops watching, batches already handed to the executor are still delivered
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    service.close();
+    Thread current;
+    synchronized (this) {
+      current = thread;
+    }
+    if (current != null && current != Thread.currentThread()) {
+      try {
+        current.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
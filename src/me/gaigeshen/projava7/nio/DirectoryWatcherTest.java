@@ -0,0 +1,196 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class DirectoryWatcherTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Collects all changes of every path in the order of the batches
+   */
+  private static class Recorder implements DirectoryWatcher.ChangeListener {
+
+    final Map<Path, List<DirectoryWatcher.Change>> changes = new ConcurrentHashMap<>();
+    final List<Integer> batches = Collections.synchronizedList(new ArrayList<Integer>());
+
+    @Override
+    public void changed(Map<Path, DirectoryWatcher.Change> batch) {
+      batches.add(batch.size());
+      for (Map.Entry<Path, DirectoryWatcher.Change> entry : batch.entrySet()) {
+        List<DirectoryWatcher.Change> list = changes.get(entry.getKey());
+        if (list == null) {
+          list = Collections.synchronizedList(new ArrayList<DirectoryWatcher.Change>());
+          changes.put(entry.getKey(), list);
+        }
+        list.add(entry.getValue());
+      }
+    }
+
+    DirectoryWatcher.Change last(Path path) {
+      List<DirectoryWatcher.Change> list = changes.get(path);
+      return list == null || list.isEmpty() ? null : list.get(list.size() - 1);
+    }
+
+    void await(Path path, DirectoryWatcher.Change change) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 10000;
+      while (last(path) != change) {
+        assertTrue(path + " not " + change, System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+    }
+  }
+
+  @Test
+  public void newSubdirectoriesAreWatched() throws Exception {
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Path root = folder.newFolder().toPath();
+    Files.createDirectory(root.resolve("existing"));
+    try (DirectoryWatcher watcher = new DirectoryWatcher(root, executor, 50, TimeUnit.MILLISECONDS)) {
+      Recorder recorder = new Recorder();
+      watcher.subscribe(recorder);
+      watcher.start();
+
+      Path existing = Files.write(root.resolve("existing").resolve("a.txt"), bytes("a"));
+      recorder.await(existing, DirectoryWatcher.Change.CREATED);
+
+      // Created together with the directories, before they are registered
+      Path deep = Files.createDirectories(root.resolve("x").resolve("y").resolve("z"));
+      Path file = Files.write(deep.resolve("b.txt"), bytes("b"));
+      recorder.await(file, DirectoryWatcher.Change.CREATED);
+      assertEquals(DirectoryWatcher.Change.CREATED, recorder.last(root.resolve("x")));
+      assertEquals(DirectoryWatcher.Change.CREATED, recorder.last(deep));
+
+      // And watched from then on
+      Thread.sleep(100);
+      Files.write(file, bytes("more"), StandardOpenOption.APPEND);
+      recorder.await(file, DirectoryWatcher.Change.MODIFIED);
+      Path other = Files.write(deep.resolve("c.txt"), bytes("c"));
+      recorder.await(other, DirectoryWatcher.Change.CREATED);
+
+      Files.delete(other);
+      recorder.await(other, DirectoryWatcher.Change.DELETED);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void eventsOfAPathAreMerged() throws Exception {
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Path root = folder.newFolder().toPath();
+    try (DirectoryWatcher watcher = new DirectoryWatcher(root, executor, 300, TimeUnit.MILLISECONDS)) {
+      Recorder recorder = new Recorder();
+      watcher.subscribe(recorder);
+      watcher.start();
+
+      Path file = root.resolve("merged.txt");
+      Path gone = root.resolve("gone.txt");
+      Path marker = root.resolve("marker.txt");
+      for (int i = 0; i < 20; i++) {
+        Files.write(file, bytes("line " + i + "\n"), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      }
+      Files.write(gone, bytes("gone"));
+      Files.delete(gone);
+      Files.write(marker, bytes("marker"));
+      recorder.await(marker, DirectoryWatcher.Change.CREATED);
+
+      assertEquals(Collections.singletonList(DirectoryWatcher.Change.CREATED), recorder.changes.get(file));
+      assertEquals(null, recorder.changes.get(gone));
+      assertEquals(1, recorder.batches.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void failingListener() throws Exception {
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Path root = folder.newFolder().toPath();
+    try (DirectoryWatcher watcher = new DirectoryWatcher(root, executor, 50, TimeUnit.MILLISECONDS)) {
+      watcher.subscribe(new DirectoryWatcher.ChangeListener() {
+        @Override
+        public void changed(Map<Path, DirectoryWatcher.Change> changes) {
+          throw new IllegalStateException("Listener failed");
+        }
+      });
+      Recorder recorder = new Recorder();
+      watcher.subscribe(recorder);
+      watcher.start();
+
+      Path first = Files.write(root.resolve("first.txt"), bytes("first"));
+      recorder.await(first, DirectoryWatcher.Change.CREATED);
+      assertEquals(1, watcher.listenerFailures());
+      // Later batches are still delivered
+      Path second = Files.write(root.resolve("second.txt"), bytes("second"));
+      recorder.await(second, DirectoryWatcher.Change.CREATED);
+      assertEquals(2, watcher.listenerFailures());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Files created in a burst, the ones created before the start are more than a watch key
+   * queues, their dropped events are found by the rescan
+   */
+  @Test
+  public void burst() throws Exception {
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Path root = folder.newFolder().toPath();
+    try (DirectoryWatcher watcher = new DirectoryWatcher(root, executor, 100, TimeUnit.MILLISECONDS)) {
+      Recorder recorder = new Recorder();
+      watcher.subscribe(recorder);
+
+      int files = 5000;
+      long start = System.nanoTime();
+      for (int i = 0; i < files; i++) {
+        Files.createFile(root.resolve("f" + i));
+        if (i == files / 2) {
+          watcher.start();
+        }
+      }
+      for (int i = 0; i < files; i++) {
+        recorder.await(root.resolve("f" + i), DirectoryWatcher.Change.CREATED);
+      }
+      System.out.println(files + " files in " + (System.nanoTime() - start) / 1000000 + " ms, "
+          + recorder.batches.size() + " batches, " + watcher.rescans() + " rescans");
+      assertEquals(files, recorder.changes.size());
+      assertTrue(watcher.rescans() > 0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+}
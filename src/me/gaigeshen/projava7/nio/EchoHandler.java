@@ -0,0 +1,26 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Echo everything back to the peer, same as the nonBlockingServer example
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+class EchoHandler implements ConnectionHandler {
+
+  @Override
+  public void opened(Connection connection) throws IOException {
+  }
+
+  @Override
+  public void read(Connection connection, ByteBuffer buffer) throws IOException {
+    connection.write(buffer);
+  }
+
+  @Override
+  public void closed(Connection connection) {
+  }
+}
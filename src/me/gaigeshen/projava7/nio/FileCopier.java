@@ -0,0 +1,186 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies big files in chunks on several threads. Unlike copyFile and
+ * copyFileUsingTransferMethod in SeekableByteChannelTest every read, write and transfer
+ * is looped until it is complete, one transferTo call moves at most 2 GB on Linux.
+ * <p>
+ * The target is grown to its final size before the chunks are written, so the threads
+ * only write at positions inside the file and never race to extend it. The chunk size
+ * adapts to the file, a few chunks per thread so a slow chunk does not hold up the copy,
+ * files below one chunk are copied on the calling thread.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FileCopier {
+
+  public enum Mode {
+    /**
+     * FileChannel.transferFrom, the kernel copies the bytes
+     */
+    TRANSFER,
+    /**
+     * Positional reads and writes through pooled direct buffers
+     */
+    BUFFERED
+  }
+
+  static final long MIN_CHUNK = 1024 * 1024;
+  static final long MAX_CHUNK = 64 * 1024 * 1024;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final Mode mode;
+
+  /**
+   * @param executor runs the chunks, not shut down by the copier
+   * @param parallelism the number of chunks copied at the same time
+   */
+  public FileCopier(ExecutorService executor, int parallelism, Mode mode) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism: " + parallelism);
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.mode = mode;
+  }
+
+  /**
+   * Returns the chunk size for a file, a multiple of {@link #MIN_CHUNK}
+   */
+  static long chunkSize(long size, int parallelism) {
+    long chunk = size / ((long) parallelism * CHUNKS_PER_THREAD);
+    chunk = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, chunk));
+    return (chunk + MIN_CHUNK - 1) / MIN_CHUNK * MIN_CHUNK;
+  }
+
+  /**
+   * Copies the source to the target, which is created or truncated
+   *
+   * @return the number of bytes copied
+   * @throws EOFException if the source got shorter during the copy
+   */
+  public long copy(Path source, Path target) throws IOException {
+    try (FileChannel from = FileChannel.open(source, StandardOpenOption.READ);
+        FileChannel to = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      final long size = from.size();
+      final long chunk = chunkSize(size, parallelism);
+      if (size == 0) {
+        return 0;
+      }
+      // Grow the target to its size up front
+      write(to, ByteBuffer.allocate(1), size - 1);
+      if (size <= chunk || parallelism == 1) {
+        copy(from, to, 0, size);
+        return size;
+      }
+      final AtomicLong next = new AtomicLong();
+      List<Future<Void>> futures = new ArrayList<>(parallelism);
+      for (int i = 0; i < parallelism && (long) i * chunk < size; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            // Every thread has its own source channel, transferFrom moves its position
+            try (FileChannel own = FileChannel.open(source, StandardOpenOption.READ)) {
+              long position;
+              while ((position = next.getAndAdd(chunk)) < size) {
+                copy(own, to, position, Math.min(chunk, size - position));
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      await(futures, next);
+      return size;
+    }
+  }
+
+  private void await(List<Future<Void>> futures, AtomicLong next) throws IOException {
+    IOException failure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        // Stop the other threads after their current chunk
+        next.set(Long.MAX_VALUE / 2);
+        if (failure == null) {
+          failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+              : new IOException(e.getCause());
+        }
+      } catch (InterruptedException e) {
+        next.set(Long.MAX_VALUE / 2);
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void copy(FileChannel from, FileChannel to, long position, long count) throws IOException {
+    if (mode == Mode.TRANSFER) {
+      transfer(from, to, position, count);
+      return;
+    }
+    try (PooledBuffer pooled = BufferPool.shared().acquire(64 * 1024)) {
+      ByteBuffer buffer = pooled.buffer();
+      long end = position + count;
+      while (position < end) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        while (buffer.hasRemaining()) {
+          int readed = from.read(buffer, position + buffer.position());
+          if (readed == -1) {
+            throw new EOFException("Source ends at " + (position + buffer.position()));
+          }
+        }
+        buffer.flip();
+        position += write(to, buffer, position);
+      }
+    }
+  }
+
+  /**
+   * Loops FileChannel.transferFrom until the count is copied, a short transfer is
+   * normal and only means the source is done if it ends before the position
+   */
+  static void transfer(FileChannel from, FileChannel to, long position, long count) throws IOException {
+    from.position(position);
+    long end = position + count;
+    while (position < end) {
+      long transferred = to.transferFrom(from, position, end - position);
+      if (transferred == 0 && from.position() >= from.size()) {
+        throw new EOFException("Source ends at " + from.position());
+      }
+      position += transferred;
+    }
+  }
+
+  private static int write(FileChannel to, ByteBuffer buffer, long position) throws IOException {
+    int written = 0;
+    while (buffer.hasRemaining()) {
+      written += to.write(buffer, position + written);
+    }
+    return written;
+  }
+}
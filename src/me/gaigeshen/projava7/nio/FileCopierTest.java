@@ -0,0 +1,127 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FileCopierTest {
+
+  @Test
+  public void chunkSize() throws Exception {
+
+    assertEquals(FileCopier.MIN_CHUNK, FileCopier.chunkSize(10, 4));
+    assertEquals(2 * FileCopier.MIN_CHUNK, FileCopier.chunkSize(30 * FileCopier.MIN_CHUNK, 4));
+    assertEquals(FileCopier.MAX_CHUNK, FileCopier.chunkSize(20L * 1024 * 1024 * 1024, 4));
+  }
+
+  @Test
+  public void copy() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Path source = Files.createTempFile("copier", ".bin");
+    Path target = Files.createTempFile("copier", ".copy");
+    try {
+      Random random = new Random(1);
+      // Empty, tiny, one byte past a chunk and many uneven chunks
+      for (int size : new int[] { 0, 1, (int) FileCopier.MIN_CHUNK + 1, 9 * 1024 * 1024 + 123 }) {
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        Files.write(source, content);
+        for (FileCopier.Mode mode : FileCopier.Mode.values()) {
+          Files.write(target, new byte[size + 1000]);
+          assertEquals(size, new FileCopier(executor, 4, mode).copy(source, target));
+          assertArrayEquals(mode + " " + size, content, Files.readAllBytes(target));
+        }
+      }
+    } finally {
+      executor.shutdown();
+      Files.delete(source);
+      Files.delete(target);
+    }
+  }
+
+  /**
+   * Sizes in MB with -DfileCopier.sizes=1,1024,20480, the default keeps the test quick
+   */
+  @Test
+  public void benchmark() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Path source = Files.createTempFile("copier", ".bin");
+    Path target = source.resolveSibling(source.getFileName() + ".copy");
+    try {
+      for (String mb : System.getProperty("fileCopier.sizes", "1,64").split(",")) {
+        long size = Long.parseLong(mb.trim()) * 1024 * 1024;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+          ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+          for (long position = 0; position < size; position += buffer.capacity()) {
+            buffer.clear();
+            buffer.putLong(0, position);
+            channel.write(buffer, position);
+          }
+        }
+        for (int round = 0; round < 2; round++) {
+          long start = System.nanoTime();
+          Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+          long filesCopy = System.nanoTime() - start;
+
+          Files.delete(target);
+          start = System.nanoTime();
+          try (FileChannel from = FileChannel.open(source, StandardOpenOption.READ);
+              FileChannel to = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(4 * 1024);
+            while (from.read(buffer) > 0) {
+              buffer.flip();
+              while (buffer.hasRemaining()) {
+                to.write(buffer);
+              }
+              buffer.clear();
+            }
+          }
+          long buffered = System.nanoTime() - start;
+
+          Files.delete(target);
+          start = System.nanoTime();
+          try (FileChannel from = FileChannel.open(source, StandardOpenOption.READ);
+              FileChannel to = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            from.transferTo(0, from.size(), to);
+          }
+          long singleTransfer = System.nanoTime() - start;
+
+          start = System.nanoTime();
+          new FileCopier(executor, 4, FileCopier.Mode.TRANSFER).copy(source, target);
+          long parallelTransfer = System.nanoTime() - start;
+
+          start = System.nanoTime();
+          new FileCopier(executor, 4, FileCopier.Mode.BUFFERED).copy(source, target);
+          long parallelBuffered = System.nanoTime() - start;
+
+          System.out.println(mb.trim() + " MB: Files.copy " + filesCopy / 1000000 + " ms, 4 KB loop "
+              + buffered / 1000000 + " ms, transferTo " + singleTransfer / 1000000 + " ms, parallel transfer "
+              + parallelTransfer / 1000000 + " ms, parallel buffered " + parallelBuffered / 1000000 + " ms");
+        }
+      }
+    } finally {
+      executor.shutdown();
+      Files.deleteIfExists(source);
+      Files.deleteIfExists(target);
+    }
+  }
+}
@@ -0,0 +1,756 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of a directory tree, size, modification time, device and inode of
+ * every path. Every entry is a slot in a set of primitive arrays, its name an index into a
+ * table of interned names, so a path takes less than a hundred bytes and no objects of
+ * its own.
+ * <p>
+ * The index is built by one walk of the tree, or loaded from the file it was saved to
+ * and brought up to date by {@link #refresh()}, and then kept current by subscribing it
+ * to a {@link DirectoryWatcher}. Queries by name
+ * and by glob are answered from memory: the entries of a name are chained, a glob is
+ * matched against the distinct names once and not against every path.
+ * <p>
+ * Device and inode come from the "unix" view, read once more per path after the basic
+ * attributes, so building costs two stats a path where the view exists. Elsewhere they
+ * are -1.
+ * <p>
+ * Reads and updates may happen at the same time from different threads.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FileIndex implements DirectoryWatcher.ChangeListener {
+
+  private static final int MAGIC = 0x46494458;
+  private static final int VERSION = 1;
+  private static final byte DIRECTORY = 1;
+  // Parent of the root, and of the free slots
+  private static final int NONE = -1, FREE = -2;
+
+  /**
+   * What the index knows of a path
+   */
+  public static final class Entry {
+
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    private final long device;
+    private final long inode;
+    private final boolean directory;
+
+    Entry(Path path, long size, long lastModified, long device, long inode, boolean directory) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.device = device;
+      this.inode = inode;
+      this.directory = directory;
+    }
+
+    public Path path() {
+      return path;
+    }
+
+    public long size() {
+      return size;
+    }
+
+    /**
+     * In milliseconds
+     */
+    public long lastModified() {
+      return lastModified;
+    }
+
+    /**
+     * Device and inode of the "unix" view, -1 where the file system does not have it
+     */
+    public long device() {
+      return device;
+    }
+
+    public long inode() {
+      return inode;
+    }
+
+    public boolean isDirectory() {
+      return directory;
+    }
+  }
+
+  /**
+   * Parent and name to slot, open addressing without boxing
+   */
+  private static class ChildTable {
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    ChildTable(int expected) {
+      int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) * 2;
+      keys = new long[capacity];
+      values = new int[capacity];
+      Arrays.fill(keys, -1);
+    }
+
+    int get(long key) {
+      int mask = keys.length - 1;
+      for (int i = hash(key, mask);; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return values[i];
+        }
+        if (keys[i] == -1) {
+          return -1;
+        }
+      }
+    }
+
+    void put(long key, int value) {
+      if ((size + 1) * 2 > keys.length) {
+        grow();
+      }
+      int mask = keys.length - 1;
+      int i = hash(key, mask);
+      while (keys[i] != -1 && keys[i] != key) {
+        i = (i + 1) & mask;
+      }
+      if (keys[i] == -1) {
+        size++;
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+
+    void remove(long key) {
+      int mask = keys.length - 1;
+      int i = hash(key, mask);
+      while (keys[i] != key) {
+        if (keys[i] == -1) {
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      size--;
+      // Shift back the entries that probed past the removed one
+      for (int j = (i + 1) & mask; keys[j] != -1; j = (j + 1) & mask) {
+        int home = hash(keys[j], mask);
+        if (((j - home) & mask) >= ((j - i) & mask)) {
+          keys[i] = keys[j];
+          values[i] = values[j];
+          i = j;
+        }
+      }
+      keys[i] = -1;
+    }
+
+    private void grow() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new int[oldKeys.length * 2];
+      Arrays.fill(keys, -1);
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != -1) {
+          put(oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+
+    private static int hash(long key, int mask) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+  }
+
+  private final Path root;
+  private final boolean unix;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // Interned names, never removed
+  private final List<String> names = new ArrayList<>();
+  private final Map<String, Integer> nameIds = new HashMap<>();
+  private int[] firstByName = new int[1024];
+
+  // One slot per path
+  private int[] parents;
+  private int[] nameOf;
+  private int[] firstChild;
+  private int[] nextSibling;
+  private int[] prevSibling;
+  private int[] nextSameName;
+  private int[] prevSameName;
+  private long[] sizes;
+  private long[] modified;
+  private long[] devices;
+  private long[] inodes;
+  private byte[] flags;
+  private final ChildTable children;
+  private int used;
+  private int free = NONE;
+  private int live;
+
+  private FileIndex(Path root, int capacity) {
+    this.root = root;
+    this.unix = root.getFileSystem().supportedFileAttributeViews().contains("unix");
+    this.children = new ChildTable(capacity);
+    Arrays.fill(firstByName, NONE);
+    allocate(capacity);
+  }
+
+  /**
+   * Walks the tree and indexes everything below the root, links are not followed
+   */
+  public static FileIndex build(Path root) throws IOException {
+    final FileIndex index = new FileIndex(root, 1024);
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        index.put(dir, attrs, index.device(dir));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        index.put(file, attrs, index.device(file));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+        if (file.equals(index.root)) {
+          throw e;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return index;
+  }
+
+  public Path root() {
+    return root;
+  }
+
+  /**
+   * The number of paths, the root included
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return live;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns null if the path is not in the index
+   */
+  public Entry get(Path path) {
+    lock.readLock().lock();
+    try {
+      int slot = find(path);
+      return slot == NONE ? null : entry(slot);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the entries with exactly this name
+   */
+  public List<Entry> findByName(String name) {
+    lock.readLock().lock();
+    try {
+      List<Entry> found = new ArrayList<>();
+      Integer id = nameIds.get(name);
+      if (id != null) {
+        collect(id, found);
+      }
+      return found;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the entries whose names match the glob, like "glob:" of getPathMatcher
+   */
+  public List<Entry> findByGlob(String glob) {
+    PathMatcher matcher = root.getFileSystem().getPathMatcher("glob:" + glob);
+    lock.readLock().lock();
+    try {
+      List<Entry> found = new ArrayList<>();
+      for (int id = 0; id < names.size(); id++) {
+        if (firstByName[id] != NONE && matcher.matches(root.getFileSystem().getPath(names.get(id)))) {
+          collect(id, found);
+        }
+      }
+      return found;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void collect(int name, List<Entry> found) {
+    for (int slot = firstByName[name]; slot != NONE; slot = nextSameName[slot]) {
+      found.add(entry(slot));
+    }
+  }
+
+  /**
+   * Applies a batch of the watcher, the paths created or modified are read once more
+   */
+  @Override
+  public void changed(Map<Path, DirectoryWatcher.Change> changes) {
+    for (Map.Entry<Path, DirectoryWatcher.Change> change : changes.entrySet()) {
+      Path path = change.getKey();
+      BasicFileAttributes attrs = null;
+      long[] device = null;
+      if (change.getValue() != DirectoryWatcher.Change.DELETED) {
+        try {
+          attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          device = device(path);
+        } catch (IOException e) {
+          // Gone since, the delete comes with the next batch
+        }
+      }
+      lock.writeLock().lock();
+      try {
+        if (attrs != null) {
+          put(path, attrs, device);
+        } else {
+          int slot = find(path);
+          if (slot != NONE && slot != 0) {
+            remove(slot);
+          }
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Writes the index to the file, replaced at once by a rename
+   */
+  public void save(Path file) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    lock.readLock().lock();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))) {
+      // Slots and names renumbered without the gaps, parents before their children
+      int[] slots = new int[live];
+      int[] renumbered = new int[used];
+      int[] savedIds = new int[names.size()];
+      Arrays.fill(savedIds, NONE);
+      List<String> saved = new ArrayList<>();
+      int count = 0;
+      slots[count++] = 0;
+      for (int i = 0; i < count; i++) {
+        int slot = slots[i];
+        renumbered[slot] = i;
+        if (slot != 0 && savedIds[nameOf[slot]] == NONE) {
+          savedIds[nameOf[slot]] = saved.size();
+          saved.add(names.get(nameOf[slot]));
+        }
+        for (int child = firstChild[slot]; child != NONE; child = nextSibling[child]) {
+          slots[count++] = child;
+        }
+      }
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(root.toString());
+      out.writeInt(saved.size());
+      for (String name : saved) {
+        out.writeUTF(name);
+      }
+      out.writeInt(count);
+      for (int i = 0; i < count; i++) {
+        int slot = slots[i];
+        out.writeInt(slot == 0 ? NONE : renumbered[parents[slot]]);
+        out.writeInt(slot == 0 ? NONE : savedIds[nameOf[slot]]);
+        out.writeLong(sizes[slot]);
+        out.writeLong(modified[slot]);
+        out.writeLong(devices[slot]);
+        out.writeLong(inodes[slot]);
+        out.writeByte(flags[slot]);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads an index saved before and refreshes it, so the paths created or deleted since
+   * the save are in it
+   */
+  public static FileIndex load(Path file) throws IOException {
+    FileIndex index;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not an index file: " + file);
+      }
+      Path root = Paths.get(in.readUTF());
+      int nameCount = in.readInt();
+      int[] nameIds = new int[nameCount];
+      index = new FileIndex(root, 1024);
+      for (int i = 0; i < nameCount; i++) {
+        nameIds[i] = index.intern(in.readUTF());
+      }
+      int count = in.readInt();
+      index.allocate(count);
+      for (int i = 0; i < count; i++) {
+        int parent = in.readInt();
+        int name = in.readInt();
+        int slot = index.link(parent, parent == NONE ? NONE : nameIds[name]);
+        if (slot != i) {
+          throw new IOException("Corrupt index file: " + file);
+        }
+        index.sizes[slot] = in.readLong();
+        index.modified[slot] = in.readLong();
+        index.devices[slot] = in.readLong();
+        index.inodes[slot] = in.readLong();
+        index.flags[slot] = in.readByte();
+      }
+    }
+    index.refresh();
+    return index;
+  }
+
+  /**
+   * Brings the index up to date with the tree. Every directory is read again, only the
+   * ones whose modification time changed are listed, new directories are walked and the
+   * missing ones removed with their subtrees. A file written in place leaves the time of
+   * its directory as it was, its size and time stay the ones the index had until the
+   * watcher reports it.
+   */
+  public void refresh() throws IOException {
+    Map<Path, DirectoryWatcher.Change> changes = new LinkedHashMap<>();
+    Deque<Path> dirs = new ArrayDeque<>();
+    dirs.add(root);
+    while (!dirs.isEmpty()) {
+      Path dir = dirs.poll();
+      BasicFileAttributes attrs;
+      try {
+        attrs = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      } catch (IOException e) {
+        if (dir.equals(root)) {
+          throw e;
+        }
+        changes.put(dir, DirectoryWatcher.Change.DELETED);
+        continue;
+      }
+      Entry saved = get(dir);
+      Map<Path, Entry> indexed = children(dir);
+      if (!attrs.isDirectory()) {
+        // Replaced by a file, put drops the subtree
+        changes.put(dir, DirectoryWatcher.Change.MODIFIED);
+      } else if (saved == null || attrs.lastModifiedTime().toMillis() != saved.lastModified()) {
+        changes.put(dir, DirectoryWatcher.Change.MODIFIED);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+          for (Path child : stream) {
+            Entry entry = indexed.remove(child);
+            if (entry != null && entry.isDirectory()) {
+              dirs.add(child);
+            } else if (entry == null && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+              created(child, changes);
+            } else {
+              changes.put(child, entry == null ? DirectoryWatcher.Change.CREATED : DirectoryWatcher.Change.MODIFIED);
+            }
+          }
+        }
+        for (Path missing : indexed.keySet()) {
+          changes.put(missing, DirectoryWatcher.Change.DELETED);
+        }
+      } else {
+        for (Entry entry : indexed.values()) {
+          if (entry.isDirectory()) {
+            dirs.add(entry.path());
+          }
+        }
+      }
+    }
+    changed(changes);
+  }
+
+  /**
+   * The directory and everything below it as created
+   */
+  private static void created(Path start, final Map<Path, DirectoryWatcher.Change> changes) throws IOException {
+    Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        changes.put(dir, DirectoryWatcher.Change.CREATED);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        changes.put(file, DirectoryWatcher.Change.CREATED);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * The entries directly below the directory, by path
+   */
+  private Map<Path, Entry> children(Path dir) {
+    lock.readLock().lock();
+    try {
+      Map<Path, Entry> entries = new HashMap<>();
+      int slot = find(dir);
+      for (int child = slot == NONE ? NONE : firstChild[slot]; child != NONE; child = nextSibling[child]) {
+        Entry entry = entry(child);
+        entries.put(entry.path(), entry);
+      }
+      return entries;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the path or updates it, the directories up to the root are added as well
+   */
+  private void put(Path path, BasicFileAttributes attrs, long[] device) {
+    Path relative = root.relativize(path);
+    int slot = 0;
+    if (live == 0) {
+      link(NONE, NONE);
+    }
+    if (!relative.toString().isEmpty()) {
+      for (int i = 0; i < relative.getNameCount(); i++) {
+        int name = intern(relative.getName(i).toString());
+        int child = children.get(key(slot, name));
+        if (child == NONE) {
+          child = link(slot, name);
+          flags[child] = DIRECTORY;
+        }
+        slot = child;
+      }
+    }
+    sizes[slot] = attrs.size();
+    modified[slot] = attrs.lastModifiedTime().toMillis();
+    flags[slot] = attrs.isDirectory() ? DIRECTORY : 0;
+    devices[slot] = device[0];
+    inodes[slot] = device[1];
+    if (!attrs.isDirectory() && firstChild[slot] != NONE) {
+      // A directory replaced by a file
+      while (firstChild[slot] != NONE) {
+        remove(firstChild[slot]);
+      }
+    }
+  }
+
+  /**
+   * Device and inode of the path, both -1 without the "unix" view
+   */
+  private long[] device(Path path) {
+    if (!unix) {
+      return new long[] { -1, -1 };
+    }
+    try {
+      Map<String, Object> attrs = Files.readAttributes(path, "unix:dev,ino", LinkOption.NOFOLLOW_LINKS);
+      return new long[] { ((Number) attrs.get("dev")).longValue(), ((Number) attrs.get("ino")).longValue() };
+    } catch (IOException e) {
+      // Gone since the basic attributes were read
+      return new long[] { -1, -1 };
+    }
+  }
+
+  private int find(Path path) {
+    if (live == 0 || !path.startsWith(root)) {
+      return NONE;
+    }
+    Path relative = root.relativize(path);
+    int slot = 0;
+    if (relative.toString().isEmpty()) {
+      return slot;
+    }
+    for (int i = 0; i < relative.getNameCount() && slot != NONE; i++) {
+      Integer name = nameIds.get(relative.getName(i).toString());
+      if (name == null) {
+        return NONE;
+      }
+      slot = children.get(key(slot, name));
+    }
+    return slot;
+  }
+
+  private Entry entry(int slot) {
+    return new Entry(path(slot), sizes[slot], modified[slot], devices[slot], inodes[slot], flags[slot] == DIRECTORY);
+  }
+
+  private Path path(int slot) {
+    int depth = 0;
+    for (int s = slot; s != 0; s = parents[s]) {
+      depth++;
+    }
+    String[] segments = new String[depth];
+    for (int s = slot; s != 0; s = parents[s]) {
+      segments[--depth] = names.get(nameOf[s]);
+    }
+    Path path = root;
+    for (String segment : segments) {
+      path = path.resolve(segment);
+    }
+    return path;
+  }
+
+  /**
+   * Takes a slot for the name under the parent and links it into the chains
+   */
+  private int link(int parent, int name) {
+    int slot;
+    if (free != NONE) {
+      slot = free;
+      free = nextSibling[slot];
+    } else {
+      if (used == parents.length) {
+        allocate(used * 2);
+      }
+      slot = used++;
+    }
+    live++;
+    parents[slot] = parent;
+    nameOf[slot] = name;
+    firstChild[slot] = NONE;
+    sizes[slot] = 0;
+    modified[slot] = 0;
+    devices[slot] = -1;
+    inodes[slot] = -1;
+    flags[slot] = 0;
+    prevSibling[slot] = NONE;
+    prevSameName[slot] = NONE;
+    if (parent == NONE) {
+      nextSibling[slot] = NONE;
+      nextSameName[slot] = NONE;
+      return slot;
+    }
+    nextSibling[slot] = firstChild[parent];
+    if (firstChild[parent] != NONE) {
+      prevSibling[firstChild[parent]] = slot;
+    }
+    firstChild[parent] = slot;
+    nextSameName[slot] = firstByName[name];
+    if (firstByName[name] != NONE) {
+      prevSameName[firstByName[name]] = slot;
+    }
+    firstByName[name] = slot;
+    children.put(key(parent, name), slot);
+    return slot;
+  }
+
+  /**
+   * Frees the slot and the slots of its subtree
+   */
+  private void remove(int slot) {
+    while (firstChild[slot] != NONE) {
+      remove(firstChild[slot]);
+    }
+    int parent = parents[slot];
+    int name = nameOf[slot];
+    if (prevSibling[slot] != NONE) {
+      nextSibling[prevSibling[slot]] = nextSibling[slot];
+    } else {
+      firstChild[parent] = nextSibling[slot];
+    }
+    if (nextSibling[slot] != NONE) {
+      prevSibling[nextSibling[slot]] = prevSibling[slot];
+    }
+    if (prevSameName[slot] != NONE) {
+      nextSameName[prevSameName[slot]] = nextSameName[slot];
+    } else {
+      firstByName[name] = nextSameName[slot];
+    }
+    if (nextSameName[slot] != NONE) {
+      prevSameName[nextSameName[slot]] = prevSameName[slot];
+    }
+    children.remove(key(parent, name));
+    parents[slot] = FREE;
+    nextSibling[slot] = free;
+    free = slot;
+    live--;
+  }
+
+  private int intern(String name) {
+    Integer id = nameIds.get(name);
+    if (id != null) {
+      return id;
+    }
+    id = names.size();
+    names.add(name);
+    nameIds.put(name, id);
+    if (id == firstByName.length) {
+      firstByName = Arrays.copyOf(firstByName, id * 2);
+      Arrays.fill(firstByName, id, firstByName.length, NONE);
+    }
+    return id;
+  }
+
+  private void allocate(int capacity) {
+    if (parents != null && capacity <= parents.length) {
+      return;
+    }
+    parents = grow(parents, capacity);
+    nameOf = grow(nameOf, capacity);
+    firstChild = grow(firstChild, capacity);
+    nextSibling = grow(nextSibling, capacity);
+    prevSibling = grow(prevSibling, capacity);
+    nextSameName = grow(nextSameName, capacity);
+    prevSameName = grow(prevSameName, capacity);
+    sizes = grow(sizes, capacity);
+    modified = grow(modified, capacity);
+    devices = grow(devices, capacity);
+    inodes = grow(inodes, capacity);
+    flags = flags == null ? new byte[capacity] : Arrays.copyOf(flags, capacity);
+  }
+
+  private static int[] grow(int[] array, int capacity) {
+    return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+  }
+
+  private static long[] grow(long[] array, int capacity) {
+    return array == null ? new long[capacity] : Arrays.copyOf(array, capacity);
+  }
+
+  private static long key(int parent, int name) {
+    return ((long) parent << 32) | (name & 0xFFFFFFFFL);
+  }
+}
@@ -0,0 +1,245 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FileIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void sameAsTheTree() throws Exception {
+
+    Path root = folder.newFolder().toPath();
+    Path saved = folder.newFile().toPath();
+    createTree(root, 3);
+    FileIndex index = FileIndex.build(root);
+    assertTree(root, index);
+
+    assertEquals(paths(root, "glob:Main.java"), paths(index.findByName("Main.java")));
+    assertEquals(paths(root, "glob:*.java"), paths(index.findByGlob("*.java")));
+    assertEquals(paths(root, "glob:{README,*.xml}"), paths(index.findByGlob("{README,*.xml}")));
+    assertTrue(index.findByName("nothing").isEmpty());
+
+    index.save(saved);
+    FileIndex loaded = FileIndex.load(saved);
+    assertEquals(root, loaded.root());
+    assertTree(root, loaded);
+    assertEquals(paths(root, "glob:*.java"), paths(loaded.findByGlob("*.java")));
+  }
+
+  @Test
+  public void refreshedOnLoad() throws Exception {
+
+    Path root = folder.newFolder().toPath();
+    Path saved = folder.newFile().toPath();
+    createTree(root, 3);
+    FileIndex.build(root).save(saved);
+
+    Files.write(root.resolve("d0").resolve("d1").resolve("Added.java"), "class Added {}".getBytes(StandardCharsets.UTF_8));
+    Files.delete(root.resolve("d2").resolve("README"));
+    createTree(Files.createDirectories(root.resolve("d1").resolve("new").resolve("deeper")), 2);
+    Files.delete(root.resolve("d0").resolve("d2").resolve("link"));
+    for (String name : new String[] { "Main.java", "Util.java", "README", "pom.xml", "notes.txt" }) {
+      Files.delete(root.resolve("d0").resolve("d2").resolve(name));
+    }
+    Files.delete(root.resolve("d0").resolve("d2"));
+
+    FileIndex loaded = FileIndex.load(saved);
+    assertTree(root, loaded);
+    assertNotNull(loaded.get(root.resolve("d0").resolve("d1").resolve("Added.java")));
+    assertNull(loaded.get(root.resolve("d2").resolve("README")));
+    assertNull(loaded.get(root.resolve("d0").resolve("d2").resolve("Main.java")));
+    assertEquals(paths(root, "glob:Main.java"), paths(loaded.findByName("Main.java")));
+  }
+
+  @Test
+  public void keptCurrentByTheWatcher() throws Exception {
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Path root = folder.newFolder().toPath();
+    try {
+      createTree(root, 2);
+      final FileIndex index = FileIndex.build(root);
+      try (DirectoryWatcher watcher = new DirectoryWatcher(root, executor, 50, TimeUnit.MILLISECONDS)) {
+        final Set<Path> applied = new HashSet<>();
+        watcher.subscribe(index);
+        watcher.subscribe(new DirectoryWatcher.ChangeListener() {
+          @Override
+          public void changed(Map<Path, DirectoryWatcher.Change> changes) {
+            synchronized (applied) {
+              applied.addAll(changes.keySet());
+              applied.notifyAll();
+            }
+          }
+        });
+        watcher.start();
+
+        Path created = Files.createDirectories(root.resolve("new").resolve("deeper"));
+        Files.write(created.resolve("Main.java"), "class Main {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("d0").resolve("Main.java"), "changed".getBytes(StandardCharsets.UTF_8));
+        // Moved out of the tree, deleted as far as the watcher is concerned
+        Files.move(root.resolve("d1"), folder.getRoot().toPath().resolve("d1"));
+        await(applied, created.resolve("Main.java"));
+        await(applied, root.resolve("d1"));
+        await(applied, root.resolve("d0").resolve("Main.java"));
+        assertTree(root, index);
+        assertNull(index.get(root.resolve("d1").resolve("Main.java")));
+        assertEquals(7, index.get(root.resolve("d0").resolve("Main.java")).size());
+        assertEquals(paths(root, "glob:Main.java"), paths(index.findByName("Main.java")));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Name and glob queries against walks, files with -DfileIndex.files
+   */
+  @Test
+  public void queries() throws Exception {
+
+    int total = Integer.getInteger("fileIndex.files", 50000);
+    Path root = folder.newFolder().toPath();
+    for (int d = 0; d * 100 < total; d++) {
+      Path dir = Files.createDirectory(root.resolve("d" + d));
+      for (int i = 0; i < 100; i++) {
+        Files.createFile(dir.resolve("file" + (d * 100 + i) % 1000 + (i % 10 == 0 ? ".java" : ".txt")));
+      }
+    }
+    long start = System.nanoTime();
+    FileIndex index = FileIndex.build(root);
+    long build = System.nanoTime() - start;
+    for (int round = 0; round < 3; round++) {
+      start = System.nanoTime();
+      Set<Path> walked = paths(root, "glob:file10.txt");
+      long walk = System.nanoTime() - start;
+      start = System.nanoTime();
+      List<FileIndex.Entry> byName = index.findByName("file10.txt");
+      long name = System.nanoTime() - start;
+      start = System.nanoTime();
+      List<FileIndex.Entry> byGlob = index.findByGlob("file1?.java");
+      long glob = System.nanoTime() - start;
+      assertEquals(walked, paths(byName));
+      assertEquals(paths(root, "glob:file1?.java"), paths(byGlob));
+      System.out.println(index.size() + " paths, built in " + build / 1000000 + " ms, walk " + walk / 1000
+          + " us, by name " + name / 1000 + " us, by glob " + glob / 1000 + " us");
+    }
+  }
+
+  private static void assertTree(Path root, final FileIndex index) throws IOException {
+    final int[] count = new int[1];
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        check(dir, attrs);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        check(file, attrs);
+        return FileVisitResult.CONTINUE;
+      }
+
+      private void check(Path path, BasicFileAttributes attrs) {
+        FileIndex.Entry entry = index.get(path);
+        assertNotNull(path.toString(), entry);
+        assertEquals(path, entry.path());
+        assertEquals(attrs.isDirectory(), entry.isDirectory());
+        if (!attrs.isDirectory()) {
+          assertEquals(attrs.size(), entry.size());
+          assertEquals(attrs.lastModifiedTime().toMillis(), entry.lastModified());
+        }
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+          assertEquals(-1, entry.inode());
+        } else {
+          try {
+            assertEquals(Files.getAttribute(path, "unix:dev", LinkOption.NOFOLLOW_LINKS), entry.device());
+            assertEquals(Files.getAttribute(path, "unix:ino", LinkOption.NOFOLLOW_LINKS), entry.inode());
+          } catch (IOException e) {
+            throw new AssertionError(e);
+          }
+        }
+        count[0]++;
+      }
+    });
+    assertEquals(count[0], index.size());
+  }
+
+  private static Set<Path> paths(List<FileIndex.Entry> entries) {
+    Set<Path> paths = new HashSet<>();
+    for (FileIndex.Entry entry : entries) {
+      assertTrue(paths.add(entry.path()));
+    }
+    return paths;
+  }
+
+  private static Set<Path> paths(Path root, String pattern) throws IOException {
+    final PathMatcher matcher = FileSystems.getDefault().getPathMatcher(pattern);
+    final Set<Path> paths = new HashSet<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (matcher.matches(file.getFileName())) {
+          paths.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return paths;
+  }
+
+  private static void await(Set<Path> applied, Path path) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    synchronized (applied) {
+      while (!applied.contains(path)) {
+        long wait = deadline - System.currentTimeMillis();
+        assertTrue(path.toString(), wait > 0);
+        applied.wait(wait);
+      }
+    }
+  }
+
+  private static void createTree(Path dir, int depth) throws IOException {
+    for (String name : new String[] { "Main.java", "Util.java", "README", "pom.xml", "notes.txt" }) {
+      Files.write(dir.resolve(name), name.getBytes(StandardCharsets.UTF_8));
+    }
+    Files.createSymbolicLink(dir.resolve("link"), dir.resolve("README"));
+    if (depth > 1) {
+      for (int i = 0; i < 3; i++) {
+        createTree(Files.createDirectory(dir.resolve("d" + i)), depth - 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A region of a file sent with FileChannel.transferTo, which the OS can do without
+ * copying the bytes through user space (sendfile on Linux). The region remembers how
+ * far it got, so a transfer to a non-blocking socket resumes where the last one stopped.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FileRegion implements Closeable {
+
+  private final FileChannel file;
+  private final boolean closeFile;
+  private long position;
+  private long remaining;
+
+  /**
+   * @param closeFile whether {@link #close()} closes the file channel too
+   */
+  public FileRegion(FileChannel file, long position, long count, boolean closeFile) {
+    if (position < 0 || count < 0) {
+      throw new IllegalArgumentException("position: " + position + ", count: " + count);
+    }
+    this.file = file;
+    this.position = position;
+    this.remaining = count;
+    this.closeFile = closeFile;
+  }
+
+  /**
+   * The whole file, closed once the region is closed
+   */
+  public static FileRegion of(Path path) throws IOException {
+    FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+    return new FileRegion(file, 0, file.size(), true);
+  }
+
+  /**
+   * Transfer as much as the target accepts, returns the number of bytes transferred.
+   * A single transferTo call may transfer less than asked for, even to a blocking
+   * target, so it is called until the region is done or the target is full.
+   */
+  public long transferTo(WritableByteChannel target) throws IOException {
+    long total = 0;
+    while (remaining > 0) {
+      long transferred = file.transferTo(position, remaining, target);
+      if (transferred == 0) {
+        if (position >= file.size()) {
+          throw new EOFException("File truncated at " + file.size() + ", " + remaining + " bytes missing");
+        }
+        break;
+      }
+      position += transferred;
+      remaining -= transferred;
+      total += transferred;
+    }
+    return total;
+  }
+
+  public long position() {
+    return position;
+  }
+
+  public long remaining() {
+    return remaining;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closeFile) {
+      file.close();
+    }
+  }
+}
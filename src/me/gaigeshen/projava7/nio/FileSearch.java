@@ -0,0 +1,186 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Searches a file tree for the files whose names match any of a set of patterns, all
+ * patterns in one pass over the tree with a {@link ParallelFileWalker}. The patterns are
+ * compiled once, "glob:" and "regex:" like FileSystem.getPathMatcher, the plain globs
+ * *.java, Foo* and Foo.java are compared as strings without a matcher.
+ * <p>
+ * The matches are handed to the handler as they are found, with the attributes the walk
+ * has read anyway, so no file is looked at a second time. Once the limit is reached or
+ * the handler says so, all workers stop at their next entry.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FileSearch {
+
+  /**
+   * Called from the pool threads, so has to be thread-safe
+   */
+  public interface MatchHandler {
+
+    /**
+     * @param pattern the index of the first pattern matching the name
+     * @return false to stop the search
+     */
+    boolean found(Path file, BasicFileAttributes attrs, int pattern);
+  }
+
+  /**
+   * A compiled pattern
+   */
+  private static class NameMatcher {
+
+    static final int EQUALS = 0, SUFFIX = 1, PREFIX = 2, REGEX = 3, GLOB = 4;
+
+    final int kind;
+    final String text;
+    final Pattern regex;
+    final PathMatcher glob;
+
+    NameMatcher(int kind, String text, Pattern regex, PathMatcher glob) {
+      this.kind = kind;
+      this.text = text;
+      this.regex = regex;
+      this.glob = glob;
+    }
+
+    boolean matches(String name, Path file) {
+      switch (kind) {
+      case EQUALS:
+        return name.equals(text);
+      case SUFFIX:
+        return name.endsWith(text);
+      case PREFIX:
+        return name.startsWith(text);
+      case REGEX:
+        return regex.matcher(name).matches();
+      default:
+        return glob.matches(file.getFileName());
+      }
+    }
+  }
+
+  private final ParallelFileWalker walker;
+  private final List<NameMatcher> matchers = new ArrayList<>();
+
+  public FileSearch(ForkJoinPool pool, int perStoreConcurrency) {
+    this.walker = new ParallelFileWalker(pool, perStoreConcurrency, ParallelFileWalker.Order.UNORDERED);
+  }
+
+  /**
+   * Adds a pattern for the file names, "glob:pattern" or "regex:pattern"
+   *
+   * @return the index of the pattern as given to the handler
+   */
+  public int add(String syntaxAndPattern) {
+    int colon = syntaxAndPattern.indexOf(':');
+    if (colon < 1) {
+      throw new IllegalArgumentException("No syntax: " + syntaxAndPattern);
+    }
+    String syntax = syntaxAndPattern.substring(0, colon);
+    String pattern = syntaxAndPattern.substring(colon + 1);
+    NameMatcher matcher;
+    if (syntax.equalsIgnoreCase("regex")) {
+      matcher = new NameMatcher(NameMatcher.REGEX, null, Pattern.compile(pattern), null);
+    } else if (syntax.equalsIgnoreCase("glob")) {
+      matcher = glob(pattern);
+    } else {
+      throw new UnsupportedOperationException("Syntax not supported: " + syntax);
+    }
+    matchers.add(matcher);
+    return matchers.size() - 1;
+  }
+
+  private static NameMatcher glob(String pattern) {
+    if (!special(pattern, 0, pattern.length())) {
+      return new NameMatcher(NameMatcher.EQUALS, pattern, null, null);
+    }
+    int last = pattern.length() - 1;
+    if (pattern.charAt(0) == '*' && !special(pattern, 1, pattern.length())) {
+      return new NameMatcher(NameMatcher.SUFFIX, pattern.substring(1), null, null);
+    }
+    if (pattern.charAt(last) == '*' && !special(pattern, 0, last)) {
+      return new NameMatcher(NameMatcher.PREFIX, pattern.substring(0, last), null, null);
+    }
+    return new NameMatcher(NameMatcher.GLOB, null, null, FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+  }
+
+  private static boolean special(String pattern, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if ("*?[]{}\\/".indexOf(pattern.charAt(i)) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Searches the tree, directories are not matched
+   *
+   * @param limit the number of matches after which the search stops, 0 for no limit
+   * @return the number of matches handed to the handler
+   */
+  public int search(Path root, final int limit, final MatchHandler handler) throws IOException {
+    if (matchers.isEmpty()) {
+      throw new IllegalStateException("No patterns");
+    }
+    final NameMatcher[] compiled = matchers.toArray(new NameMatcher[matchers.size()]);
+    final AtomicInteger found = new AtomicInteger();
+    walker.walk(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        Path name = file.getFileName();
+        if (name == null || attrs.isDirectory()) {
+          return FileVisitResult.CONTINUE;
+        }
+        String text = name.toString();
+        for (int i = 0; i < compiled.length; i++) {
+          if (compiled[i].matches(text, file)) {
+            return deliver(file, attrs, i);
+          }
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      private FileVisitResult deliver(Path file, BasicFileAttributes attrs, int pattern) {
+        int count = found.incrementAndGet();
+        if (limit > 0 && count > limit) {
+          // Another worker got the last one
+          found.decrementAndGet();
+          return FileVisitResult.TERMINATE;
+        }
+        if (!handler.found(file, attrs, pattern) || count == limit) {
+          return FileVisitResult.TERMINATE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        // Unreadable entries are left out like the ones not matching
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return found.get();
+  }
+}
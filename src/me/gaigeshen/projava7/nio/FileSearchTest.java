@@ -0,0 +1,142 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FileSearchTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static final String[] PATTERNS = { "glob:*.java", "glob:README*", "glob:Main.class",
+      "glob:*.{xml,properties}", "regex:data-[0-9]+\\.bin" };
+
+  @Test
+  public void allPatternsInOnePass() throws Exception {
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Path root = folder.newFolder().toPath();
+    try {
+      createTree(root, 3);
+      FileSearch search = new FileSearch(pool, 4);
+      for (int i = 0; i < PATTERNS.length; i++) {
+        assertEquals(i, search.add(PATTERNS[i]));
+      }
+      final Map<Path, Integer> found = new ConcurrentHashMap<>();
+      int count = search.search(root, 0, new FileSearch.MatchHandler() {
+        @Override
+        public boolean found(Path file, BasicFileAttributes attrs, int pattern) {
+          assertTrue(attrs.isRegularFile());
+          found.put(file, pattern);
+          return true;
+        }
+      });
+      assertEquals(found.size(), count);
+
+      // The same with the matchers of the file system, one walk per pattern
+      Set<Path> expected = new HashSet<>();
+      for (int i = 0; i < PATTERNS.length; i++) {
+        Set<Path> matched = matching(root, FileSystems.getDefault().getPathMatcher(PATTERNS[i]));
+        for (Path path : matched) {
+          if (expected.add(path)) {
+            assertEquals(path.toString(), Integer.valueOf(i), found.get(path));
+          }
+        }
+      }
+      assertEquals(expected, found.keySet());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void stopsAtTheLimit() throws Exception {
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Path root = folder.newFolder().toPath();
+    try {
+      createTree(root, 3);
+      FileSearch search = new FileSearch(pool, 4);
+      search.add("glob:*.java");
+      for (int limit : new int[] { 1, 7 }) {
+        final Set<Path> found = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+        assertEquals(limit, search.search(root, limit, new FileSearch.MatchHandler() {
+          @Override
+          public boolean found(Path file, BasicFileAttributes attrs, int pattern) {
+            found.add(file);
+            return true;
+          }
+        }));
+        assertEquals(limit, found.size());
+      }
+
+      // The handler stops it
+      final AtomicInteger calls = new AtomicInteger();
+      search.search(root, 0, new FileSearch.MatchHandler() {
+        @Override
+        public boolean found(Path file, BasicFileAttributes attrs, int pattern) {
+          calls.incrementAndGet();
+          return false;
+        }
+      });
+      // Other workers may have had a match at the same time
+      assertTrue(calls.get() <= pool.getParallelism());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static Set<Path> matching(Path root, final PathMatcher matcher) throws IOException {
+    final Set<Path> matched = new HashSet<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (matcher.matches(file.getFileName())) {
+          matched.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return matched;
+  }
+
+  private static void createTree(Path dir, int depth) throws IOException {
+    String[] names = { "A.java", "B.java", "README", "README.md", "Main.class", "Other.class", "pom.xml",
+        "app.properties", "data-1.bin", "data-22.bin", "data-x.bin", "notes.txt" };
+    for (String name : names) {
+      Files.createFile(dir.resolve(name));
+    }
+    if (depth > 1) {
+      for (int i = 0; i < 4; i++) {
+        createTree(Files.createDirectory(dir.resolve("d" + i)), depth - 1);
+      }
+      // A directory matching a pattern is not a match
+      Files.createDirectory(dir.resolve("dir.java"));
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a byte stream into frames and writes frames to a byte stream. Decoding
+ * works in place: the codec only moves the position and limit of the given buffer,
+ * no bytes are copied and nothing is allocated.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public interface FrameCodec {
+
+  /**
+   * Look for a complete frame starting at the position of the buffer. If there is one,
+   * the position and limit are set around its payload and the position of the next
+   * frame is returned. Otherwise returns -1 and the buffer is left unchanged.
+   *
+   * @throws IOException if the frame is longer than the codec accepts
+   */
+  int decode(ByteBuffer in) throws IOException;
+
+  /**
+   * Returns the number of bytes {@link #encode(ByteBuffer, ByteBuffer)} needs for the payload
+   */
+  int encodedLength(int payloadLength);
+
+  /**
+   * Write the remaining bytes of the payload as one frame to the output buffer
+   */
+  void encode(ByteBuffer payload, ByteBuffer out);
+
+  /**
+   * Returns the longest frame including its header or delimiter, used to size the
+   * buffer which collects a frame split over several reads
+   */
+  int maxFrameLength();
+}
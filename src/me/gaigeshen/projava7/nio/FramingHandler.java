@@ -0,0 +1,140 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Connection handler which splits the byte stream into frames with a {@link FrameCodec}.
+ * Frames are decoded in place from the read buffer; only a frame split over several
+ * reads is collected in a pooled buffer, attached to the connection until complete.
+ * That buffer starts small and doubles as bytes arrive, up to the longest frame of the
+ * codec, so a peer can not make the server allocate the longest frame with a few bytes.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FramingHandler implements ConnectionHandler {
+
+  private static final int INITIAL_CUMULATION = 4096;
+
+  /**
+   * Receives the decoded frames
+   */
+  public interface FrameListener {
+
+    /**
+     * The frame payload is between the position and limit of the buffer, it is only
+     * valid during the call
+     */
+    void frame(FramingHandler handler, Connection connection, ByteBuffer frame) throws IOException;
+  }
+
+  private final FrameCodec codec;
+  private final FrameListener listener;
+  private final BufferPool pool;
+
+  public FramingHandler(FrameCodec codec, FrameListener listener) {
+    this(codec, listener, BufferPool.shared());
+  }
+
+  public FramingHandler(FrameCodec codec, FrameListener listener, BufferPool pool) {
+    this.codec = codec;
+    this.listener = listener;
+    this.pool = pool;
+  }
+
+  /**
+   * Encode the payload straight into a pooled buffer and write it to the connection
+   */
+  public void send(Connection connection, ByteBuffer payload) throws IOException {
+    PooledBuffer out = pool.acquire(codec.encodedLength(payload.remaining()));
+    codec.encode(payload, out.buffer());
+    out.buffer().flip();
+    connection.write(out);
+  }
+
+  @Override
+  public void opened(Connection connection) throws IOException {
+  }
+
+  @Override
+  public void read(Connection connection, ByteBuffer buffer) throws IOException {
+    PooledBuffer cumulation = (PooledBuffer) connection.attachment();
+    if (cumulation == null) {
+      decode(connection, buffer);
+      if (buffer.hasRemaining() && connection.isOpen()) {
+        // Keep the beginning of the next frame
+        if (buffer.remaining() > codec.maxFrameLength()) {
+          throw new IOException("Frame longer than " + codec.maxFrameLength() + " bytes");
+        }
+        cumulation = pool.acquire(Math.min(codec.maxFrameLength(), Math.max(buffer.remaining(), INITIAL_CUMULATION)));
+        cumulation.buffer().put(buffer);
+        connection.attach(cumulation);
+      }
+      return;
+    }
+    ByteBuffer collected = cumulation.buffer();
+    while (buffer.hasRemaining()) {
+      if (!collected.hasRemaining()) {
+        cumulation = grow(connection, cumulation);
+        collected = cumulation.buffer();
+      }
+      int limit = buffer.limit();
+      buffer.limit(buffer.position() + Math.min(collected.remaining(), buffer.remaining()));
+      collected.put(buffer);
+      buffer.limit(limit);
+
+      collected.flip();
+      decode(connection, collected);
+      if (!connection.isOpen()) {
+        // Closed by the listener, closed() gave the cumulation back already
+        return;
+      }
+      if (!collected.hasRemaining()) {
+        // Back to decoding in place
+        connection.attach(null);
+        cumulation.release();
+        read(connection, buffer);
+        return;
+      }
+      collected.compact();
+    }
+  }
+
+  /**
+   * Moves the collected bytes to a buffer twice as big, at most the longest frame
+   */
+  private PooledBuffer grow(Connection connection, PooledBuffer cumulation) throws IOException {
+    ByteBuffer collected = cumulation.buffer();
+    if (collected.capacity() >= codec.maxFrameLength()) {
+      throw new IOException("Frame longer than " + codec.maxFrameLength() + " bytes");
+    }
+    PooledBuffer larger = pool.acquire((int) Math.min(codec.maxFrameLength(), collected.capacity() * 2L));
+    collected.flip();
+    larger.buffer().put(collected);
+    connection.attach(larger);
+    cumulation.release();
+    return larger;
+  }
+
+  private void decode(Connection connection, ByteBuffer in) throws IOException {
+    while (in.hasRemaining() && connection.isOpen()) {
+      int limit = in.limit();
+      int next = codec.decode(in);
+      if (next < 0) {
+        return;
+      }
+      listener.frame(this, connection, in);
+      in.limit(limit).position(next);
+    }
+  }
+
+  @Override
+  public void closed(Connection connection) {
+    PooledBuffer cumulation = (PooledBuffer) connection.attachment();
+    if (cumulation != null) {
+      connection.attach(null);
+      cumulation.release();
+    }
+  }
+}
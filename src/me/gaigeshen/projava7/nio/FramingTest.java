@@ -0,0 +1,267 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class FramingTest {
+
+  @Test
+  public void decodeInPlace() throws Exception {
+
+    LengthFieldCodec codec = new LengthFieldCodec(1024);
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    codec.encode(ByteBuffer.wrap("first".getBytes(StandardCharsets.UTF_8)), buffer);
+    codec.encode(ByteBuffer.wrap("second".getBytes(StandardCharsets.UTF_8)), buffer);
+    // Only a part of the third frame
+    buffer.putInt(10).put((byte) 'x');
+    buffer.flip();
+    int end = buffer.limit();
+
+    int next = codec.decode(buffer);
+    assertEquals("first", StandardCharsets.UTF_8.decode(buffer).toString());
+    buffer.limit(end).position(next);
+    next = codec.decode(buffer);
+    assertEquals("second", StandardCharsets.UTF_8.decode(buffer).toString());
+    buffer.limit(end).position(next);
+    assertEquals(-1, codec.decode(buffer));
+    // Left unchanged
+    assertEquals(19, buffer.position());
+
+    DelimiterCodec lines = new DelimiterCodec((byte) '\n', 1024);
+    ByteBuffer text = ByteBuffer.wrap("Hello\nWorld".getBytes(StandardCharsets.UTF_8));
+    next = lines.decode(text);
+    assertEquals("Hello", StandardCharsets.UTF_8.decode(text).toString());
+    text.limit(11).position(next);
+    assertEquals(-1, lines.decode(text));
+  }
+
+  @Test(expected = IOException.class)
+  public void frameTooLong() throws Exception {
+
+    ByteBuffer buffer = ByteBuffer.allocate(8);
+    buffer.putInt(4096).flip();
+    new LengthFieldCodec(1024).decode(buffer);
+  }
+
+  @Test
+  public void framedEcho() throws Exception {
+
+    FramingHandler handler = new FramingHandler(new LengthFieldCodec(64 * 1024),
+        new FramingHandler.FrameListener() {
+          @Override
+          public void frame(FramingHandler handler, Connection connection, ByteBuffer frame) throws IOException {
+            handler.send(connection, frame);
+          }
+        });
+
+    try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        1, MultiReactorServer.Balance.ROUND_ROBIN, handler)) {
+      server.start();
+
+      // 100 frames of different sizes, sent in odd pieces so TCP merges and splits them
+      LengthFieldCodec codec = new LengthFieldCodec(64 * 1024);
+      ByteBuffer out = ByteBuffer.allocate(4 * 1024 * 1024);
+      int expected = 0;
+      for (int i = 0; i < 100; i++) {
+        byte[] payload = new byte[i * 397];
+        for (int j = 0; j < payload.length; j++) {
+          payload[j] = (byte) (i + j);
+        }
+        codec.encode(ByteBuffer.wrap(payload), out);
+        expected += payload.length + 4;
+      }
+      out.flip();
+
+      try (final SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+        // Write from another thread, the server stops reading when we do not read the echo
+        final ByteBuffer frames = out;
+        Thread writer = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              while (frames.hasRemaining()) {
+                int limit = frames.limit();
+                frames.limit(Math.min(limit, frames.position() + 1371));
+                socket.write(frames);
+                frames.limit(limit);
+              }
+            } catch (IOException e) {
+              System.out.println("Write failed: " + e);
+            }
+          }
+        });
+        writer.start();
+        ByteBuffer in = ByteBuffer.allocate(expected);
+        while (in.hasRemaining() && socket.read(in) != -1) {
+        }
+        writer.join();
+        in.flip();
+        for (int i = 0; i < 100; i++) {
+          int limit = in.limit();
+          int next = codec.decode(in);
+          assertEquals(i * 397, in.remaining());
+          for (int j = 0; in.hasRemaining(); j++) {
+            assertEquals((byte) (i + j), in.get());
+          }
+          in.limit(limit).position(next);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void largeMaxFrameLength() throws Exception {
+
+    // The frame split over reads is collected in a buffer growing with it, not one of 16 MB
+    FramingHandler handler = new FramingHandler(new LengthFieldCodec(16 * 1024 * 1024),
+        new FramingHandler.FrameListener() {
+          @Override
+          public void frame(FramingHandler handler, Connection connection, ByteBuffer frame) throws IOException {
+            handler.send(connection, frame);
+          }
+        });
+
+    try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        1, MultiReactorServer.Balance.ROUND_ROBIN, handler)) {
+      server.start();
+
+      LengthFieldCodec codec = new LengthFieldCodec(16 * 1024 * 1024);
+      byte[] payload = new byte[1024 * 1024 + 3];
+      for (int j = 0; j < payload.length; j++) {
+        payload[j] = (byte) j;
+      }
+      final ByteBuffer out = ByteBuffer.allocate(payload.length + 4);
+      codec.encode(ByteBuffer.wrap(payload), out);
+      out.flip();
+
+      try (final SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+        Thread writer = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              while (out.hasRemaining()) {
+                socket.write(out);
+              }
+            } catch (IOException e) {
+              System.out.println("Write failed: " + e);
+            }
+          }
+        });
+        writer.start();
+        ByteBuffer in = ByteBuffer.allocate(payload.length + 4);
+        while (in.hasRemaining() && socket.read(in) != -1) {
+        }
+        writer.join();
+        in.flip();
+        codec.decode(in);
+        assertEquals(payload.length, in.remaining());
+        for (int j = 0; in.hasRemaining(); j++) {
+          assertEquals((byte) j, in.get());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void listenerClosesDuringCumulation() throws Exception {
+
+    final BufferPool pool = new BufferPool(1024 * 1024, false);
+    final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+    FramingHandler handler = new FramingHandler(new LengthFieldCodec(64 * 1024),
+        new FramingHandler.FrameListener() {
+          @Override
+          public void frame(FramingHandler handler, Connection connection, ByteBuffer frame) {
+            connection.close();
+          }
+        }, pool) {
+      @Override
+      public void read(Connection connection, ByteBuffer buffer) throws IOException {
+        try {
+          super.read(connection, buffer);
+        } catch (IOException | RuntimeException e) {
+          failures.add(e);
+          throw e;
+        }
+      }
+    };
+
+    try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        1, MultiReactorServer.Balance.ROUND_ROBIN, handler)) {
+      server.start();
+
+      // The rest of the frame alone, then with more bytes than the cumulation holds
+      for (int trailing : new int[] { 0, 10000 }) {
+        ByteBuffer out = ByteBuffer.allocate(4004 + trailing);
+        new LengthFieldCodec(64 * 1024).encode(ByteBuffer.wrap(new byte[4000]), out);
+        try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+          out.position(0).limit(100);
+          socket.write(out);
+          Thread.sleep(100);
+          out.limit(out.capacity());
+          while (out.hasRemaining()) {
+            socket.write(out);
+          }
+          assertEquals(-1, socket.read(ByteBuffer.allocate(1)));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.outstanding() != 0) {
+          assertTrue("outstanding " + pool.outstanding(), System.currentTimeMillis() < deadline);
+          Thread.sleep(10);
+        }
+      }
+      assertEquals(Collections.emptyList(), failures);
+    }
+  }
+
+  @Test
+  public void framesPerSecond() throws Exception {
+
+    // Stands in for a JMH benchmark, frames decoded in place per second
+    for (FrameCodec codec : new FrameCodec[] { new LengthFieldCodec(1024), new DelimiterCodec((byte) '\n', 1024) }) {
+      ByteBuffer payload = ByteBuffer.allocateDirect(100);
+      while (payload.hasRemaining()) {
+        payload.put((byte) 'a');
+      }
+      ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+      int frames = 0;
+      while (buffer.remaining() >= codec.encodedLength(100)) {
+        payload.clear();
+        codec.encode(payload, buffer);
+        frames++;
+      }
+      buffer.flip();
+      int end = buffer.limit();
+
+      long decoded = 0;
+      long start = System.nanoTime();
+      while (System.nanoTime() - start < 1000000000L) {
+        buffer.limit(end).position(0);
+        int next;
+        while ((next = codec.decode(buffer)) >= 0) {
+          decoded++;
+          buffer.limit(end).position(next);
+        }
+      }
+      long elapsed = System.nanoTime() - start;
+
+      System.out.println(codec.getClass().getSimpleName() + ": " + decoded * 1000000000L / elapsed
+          + " frames/s (" + frames + " frames per buffer)");
+    }
+  }
+}
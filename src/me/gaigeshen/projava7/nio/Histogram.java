@@ -0,0 +1,122 @@
+package me.gaigeshen.projava7.nio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size histogram of positive long values in the style of HdrHistogram. Values
+ * below 32 are counted exactly, above that every power of two is split into 32 linear
+ * buckets, so a percentile is off by at most 1/32 (about 3%) of the value. Recording
+ * is a couple of atomic increments, reading can happen at the same time from any thread.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class Histogram {
+
+  private static final int SUB_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts.getAndIncrement(index(value));
+    count.getAndIncrement();
+    sum.getAndAdd(value);
+    long current;
+    while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+    }
+  }
+
+  /**
+   * Add the counts of the other histogram to this one
+   */
+  public void add(Histogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      long value = other.counts.get(i);
+      if (value > 0) {
+        counts.getAndAdd(i, value);
+      }
+    }
+    count.getAndAdd(other.count.get());
+    sum.getAndAdd(other.sum.get());
+    long current;
+    long value = other.max.get();
+    while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+    }
+  }
+
+  public long count() {
+    return count.get();
+  }
+
+  public long max() {
+    return max.get();
+  }
+
+  public double mean() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) sum.get() / n;
+  }
+
+  /**
+   * Returns the highest value of the bucket the percentile falls into, for example
+   * percentile(0.99) for the 99th percentile
+   */
+  public long percentile(double percentile) {
+    long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * percentile));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValue(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long highestValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS - 1 + SUB_BITS;
+    int sub = index % SUB_BUCKETS;
+    long lowest = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    return lowest + (1L << (exponent - SUB_BITS)) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + count() + ", mean=" + (long) mean() + ", p50=" + percentile(0.5)
+        + ", p99=" + percentile(0.99) + ", p99.9=" + percentile(0.999) + ", max=" + max();
+  }
+}
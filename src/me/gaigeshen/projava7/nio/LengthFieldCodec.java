@@ -0,0 +1,62 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Frames prefixed with the payload length as a 4 bytes big-endian int
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class LengthFieldCodec implements FrameCodec {
+
+  private static final int HEADER = 4;
+
+  private final int maxPayloadLength;
+
+  public LengthFieldCodec(int maxPayloadLength) {
+    if (maxPayloadLength < 0 || maxPayloadLength > Integer.MAX_VALUE - HEADER) {
+      throw new IllegalArgumentException("maxPayloadLength: " + maxPayloadLength);
+    }
+    this.maxPayloadLength = maxPayloadLength;
+  }
+
+  @Override
+  public int decode(ByteBuffer in) throws IOException {
+    int start = in.position();
+    if (in.limit() - start < HEADER) {
+      return -1;
+    }
+    // Absolute get, the buffer order is not touched
+    int length = ((in.get(start) & 0xff) << 24) | ((in.get(start + 1) & 0xff) << 16)
+        | ((in.get(start + 2) & 0xff) << 8) | (in.get(start + 3) & 0xff);
+    if (length < 0 || length > maxPayloadLength) {
+      throw new IOException("Invalid frame length: " + length);
+    }
+    int end = start + HEADER + length;
+    if (end > in.limit()) {
+      return -1;
+    }
+    in.limit(end).position(start + HEADER);
+    return end;
+  }
+
+  @Override
+  public int encodedLength(int payloadLength) {
+    return HEADER + payloadLength;
+  }
+
+  @Override
+  public void encode(ByteBuffer payload, ByteBuffer out) {
+    int length = payload.remaining();
+    out.put((byte) (length >>> 24)).put((byte) (length >>> 16))
+      .put((byte) (length >>> 8)).put((byte) length);
+    out.put(payload);
+  }
+
+  @Override
+  public int maxFrameLength() {
+    return HEADER + maxPayloadLength;
+  }
+}
@@ -0,0 +1,234 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the lines of a channel without holding more than one byte and one char buffer
+ * of it. The same decoder and buffers are used for the whole stream, the bytes of a
+ * character split by a read stay in the byte buffer until the next read completes it.
+ * <p>
+ * For ASCII compatible charsets (UTF-8, US-ASCII, ISO-8859-1) a run of ASCII bytes is
+ * copied straight into the char buffer, the decoder only sees the rest. Lines end at
+ * "\n", "\r\n" or "\r", like with BufferedReader.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class LineReader implements Closeable {
+
+  /**
+   * Receives the lines, the sequence is only valid during the call
+   */
+  public interface LineHandler {
+
+    /**
+     * @return false to stop reading
+     */
+    boolean line(CharSequence line) throws IOException;
+  }
+
+  /**
+   * Line inside the char buffer, handed out without copying
+   */
+  private static class Slice implements CharSequence {
+
+    char[] array;
+    int offset;
+    int length;
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("index: " + index);
+      }
+      return array[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return new String(array, offset, length);
+    }
+  }
+
+  private final ReadableByteChannel channel;
+  private final CharsetDecoder decoder;
+  private final boolean asciiCompatible;
+  // Heap buffers, the ASCII copy and the decoders work on the arrays
+  private final ByteBuffer bytes;
+  private final CharBuffer chars;
+  private final StringBuilder line = new StringBuilder();
+  private final Slice slice = new Slice();
+  private boolean endOfInput;
+  private boolean flushing;
+  private boolean flushed;
+  private boolean skipLineFeed;
+
+  public LineReader(ReadableByteChannel channel, Charset charset) {
+    this(channel, charset.newDecoder(), 64 * 1024, 8 * 1024);
+  }
+
+  /**
+   * @param decoder reports malformed input unless configured otherwise
+   */
+  public LineReader(ReadableByteChannel channel, CharsetDecoder decoder, int byteBufferSize, int charBufferSize) {
+    if (byteBufferSize < 16 || charBufferSize < 2) {
+      throw new IllegalArgumentException("byteBufferSize: " + byteBufferSize + ", charBufferSize: " + charBufferSize);
+    }
+    Charset charset = decoder.charset();
+    this.channel = channel;
+    this.decoder = decoder;
+    this.asciiCompatible = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+        || charset.equals(StandardCharsets.ISO_8859_1);
+    this.bytes = ByteBuffer.allocate(byteBufferSize);
+    this.chars = CharBuffer.allocate(charBufferSize);
+    // Nothing to read yet
+    this.chars.flip();
+  }
+
+  public static LineReader open(Path path, Charset charset) throws IOException {
+    return new LineReader(FileChannel.open(path, StandardOpenOption.READ), charset);
+  }
+
+  /**
+   * Returns the next line without its terminator, null at the end of the stream
+   */
+  public String readLine() throws IOException {
+    CharSequence next = nextLine();
+    return next == null ? null : next.toString();
+  }
+
+  /**
+   * Hands every remaining line to the handler, a line that fits into the char buffer
+   * is not copied
+   *
+   * @return the number of lines handled
+   */
+  public long forEach(LineHandler handler) throws IOException {
+    long count = 0;
+    CharSequence next;
+    while ((next = nextLine()) != null) {
+      count++;
+      if (!handler.line(next)) {
+        break;
+      }
+    }
+    return count;
+  }
+
+  private CharSequence nextLine() throws IOException {
+    line.setLength(0);
+    boolean partial = false;
+    while (true) {
+      if (!chars.hasRemaining() && !fill()) {
+        return partial ? line : null;
+      }
+      char[] array = chars.array();
+      int start = chars.position();
+      int limit = chars.limit();
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (array[start] == '\n') {
+          chars.position(++start);
+          continue;
+        }
+      }
+      for (int i = start; i < limit; i++) {
+        char c = array[i];
+        if (c == '\n' || c == '\r') {
+          skipLineFeed = c == '\r';
+          chars.position(i + 1);
+          if (!partial) {
+            slice.array = array;
+            slice.offset = start;
+            slice.length = i - start;
+            return slice;
+          }
+          return line.append(array, start, i - start);
+        }
+      }
+      // The line goes on in the next chars
+      line.append(array, start, limit - start);
+      chars.position(limit);
+      partial = true;
+    }
+  }
+
+  /**
+   * Decodes the next chars, returns false at the end of the stream
+   */
+  private boolean fill() throws IOException {
+    chars.clear();
+    if (flushed) {
+      chars.flip();
+      return false;
+    }
+    while (true) {
+      if (!flushing) {
+        if (!endOfInput && channel.read(bytes) == -1) {
+          endOfInput = true;
+        }
+        bytes.flip();
+        CoderResult result = decode();
+        bytes.compact();
+        if (result.isError()) {
+          result.throwException();
+        }
+        // All bytes decoded, no decode() after the first flush()
+        flushing = endOfInput && result.isUnderflow();
+      }
+      if (flushing) {
+        flushed = decoder.flush(chars).isUnderflow();
+      }
+      if (chars.position() > 0) {
+        chars.flip();
+        return true;
+      }
+      if (flushed) {
+        chars.flip();
+        return false;
+      }
+    }
+  }
+
+  private CoderResult decode() {
+    if (asciiCompatible) {
+      byte[] src = bytes.array();
+      char[] dst = chars.array();
+      int from = bytes.position();
+      int to = chars.position();
+      int end = from + Math.min(bytes.remaining(), chars.remaining());
+      while (from < end && src[from] >= 0) {
+        dst[to++] = (char) src[from++];
+      }
+      bytes.position(from);
+      chars.position(to);
+    }
+    return decoder.decode(bytes, chars, endOfInput);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
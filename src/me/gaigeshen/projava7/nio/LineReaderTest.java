@@ -0,0 +1,152 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class LineReaderTest {
+
+  @Test
+  public void sameLinesAsBufferedReader() throws Exception {
+
+    String text = "first\r\nsecond\rthird\n\n中文 and 😀\r\n" + "x".replace("x", "long line ")
+        + new String(new char[5000]).replace('\0', 'é') + "\r\rlast without terminator";
+    for (Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16LE,
+        Charset.forName("GBK") }) {
+      String encodable = charset.newEncoder().canEncode(text) ? text : text.replace("😀", ":)").replace('é', 'e');
+      List<String> expected = new ArrayList<>();
+      try (BufferedReader reader = new BufferedReader(new StringReader(encodable))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          expected.add(line);
+        }
+      }
+      // Tiny buffers split the characters and the "\r\n" pairs everywhere
+      for (int size = 16; size < 40; size++) {
+        List<String> lines = new ArrayList<>();
+        try (LineReader reader = new LineReader(
+            Channels.newChannel(new ByteArrayInputStream(encodable.getBytes(charset))), charset.newDecoder(),
+            size, size / 8 + 2)) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            lines.add(line);
+          }
+          assertNull(reader.readLine());
+        }
+        assertEquals(charset + " " + size, expected, lines);
+      }
+    }
+  }
+
+  @Test
+  public void stopEarly() throws Exception {
+
+    try (LineReader reader = new LineReader(
+        Channels.newChannel(new ByteArrayInputStream("a\nb\nc\n".getBytes(StandardCharsets.UTF_8))),
+        StandardCharsets.UTF_8)) {
+      long count = reader.forEach(new LineReader.LineHandler() {
+        @Override
+        public boolean line(CharSequence line) {
+          return !line.toString().equals("b");
+        }
+      });
+      assertEquals(2, count);
+      assertEquals("c", reader.readLine());
+    }
+  }
+
+  @Test(expected = MalformedInputException.class)
+  public void malformedInput() throws Exception {
+
+    try (LineReader reader = new LineReader(
+        Channels.newChannel(new ByteArrayInputStream(new byte[] { 'a', '\n', (byte) 0xe4, (byte) 0xb8 })),
+        StandardCharsets.UTF_8)) {
+      assertEquals("a", reader.readLine());
+      reader.readLine();
+    }
+  }
+
+  @Test
+  public void benchmark() throws Exception {
+
+    Path path = Files.createTempFile("lines", ".txt");
+    try {
+      for (String sample : new String[] { "plain ascii text ", "utf-8 文本 " }) {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(1);
+        for (int i = 0; i < 500000; i++) {
+          for (int j = random.nextInt(8); j >= 0; j--) {
+            text.append(sample);
+          }
+          text.append(i).append('\n');
+        }
+        Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (int round = 0; round < 3; round++) {
+          long start = System.nanoTime();
+          int readAllLines = Files.readAllLines(path, StandardCharsets.UTF_8).size();
+          long allLines = System.nanoTime() - start;
+
+          start = System.nanoTime();
+          int bufferedReader = 0;
+          try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            while (reader.readLine() != null) {
+              bufferedReader++;
+            }
+          }
+          long buffered = System.nanoTime() - start;
+
+          start = System.nanoTime();
+          int readLine = 0;
+          try (LineReader reader = LineReader.open(path, StandardCharsets.UTF_8)) {
+            while (reader.readLine() != null) {
+              readLine++;
+            }
+          }
+          long strings = System.nanoTime() - start;
+
+          start = System.nanoTime();
+          long forEach;
+          try (LineReader reader = LineReader.open(path, StandardCharsets.UTF_8)) {
+            forEach = reader.forEach(new LineReader.LineHandler() {
+              @Override
+              public boolean line(CharSequence line) {
+                return true;
+              }
+            });
+          }
+          long slices = System.nanoTime() - start;
+
+          assertEquals(500000, readAllLines);
+          assertEquals(readAllLines, bufferedReader);
+          assertEquals(readAllLines, readLine);
+          assertEquals(readAllLines, forEach);
+          System.out.println(sample + ": readAllLines " + allLines / 1000000 + " ms, BufferedReader "
+              + buffered / 1000000 + " ms, readLine " + strings / 1000000 + " ms, forEach " + slices / 1000000
+              + " ms");
+        }
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for the echo servers of this package, grown out of nonBlockingClient.
+ * Many connections are driven by a few selectors, every connection keeps up to the
+ * pipelining depth of requests in flight.
+ * <p>
+ * The rate is open-loop: requests are due at fixed intervals whether or not the server
+ * keeps up, and latency is measured from the time a request was due, not from the time
+ * it could be sent. A stalled server therefore shows up in the percentiles instead of
+ * slowing the generator down (coordinated omission). A rate of 0 sends as fast as the
+ * pipeline allows, latency is then measured from the actual send.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class LoadGenerator {
+
+  /**
+   * Result of a run, latencies in nanoseconds
+   */
+  public static class Report {
+
+    private final long sent;
+    private final long received;
+    private final long nanos;
+    private final Histogram latency;
+
+    Report(long sent, long received, long nanos, Histogram latency) {
+      this.sent = sent;
+      this.received = received;
+      this.nanos = nanos;
+      this.latency = latency;
+    }
+
+    public long sent() {
+      return sent;
+    }
+
+    public long received() {
+      return received;
+    }
+
+    public Histogram latency() {
+      return latency;
+    }
+
+    /**
+     * Returns the responses per second
+     */
+    public long throughput() {
+      return nanos == 0 ? 0 : received * 1000000000L / nanos;
+    }
+
+    @Override
+    public String toString() {
+      return "sent=" + sent + ", received=" + received + ", throughput=" + throughput() + " msg/s, latency us: p50="
+          + latency.percentile(0.5) / 1000 + ", p90=" + latency.percentile(0.9) / 1000 + ", p99="
+          + latency.percentile(0.99) / 1000 + ", p99.9=" + latency.percentile(0.999) / 1000 + ", max="
+          + latency.max() / 1000;
+    }
+  }
+
+  private final InetSocketAddress address;
+  private int connections = 16;
+  private int selectors = 1;
+  private int pipeline = 1;
+  private int messageSize = 128;
+  private long rate;
+  private long durationNanos = TimeUnit.SECONDS.toNanos(5);
+
+  public LoadGenerator(InetSocketAddress address) {
+    this.address = address;
+  }
+
+  public void setConnections(int connections) {
+    this.connections = connections;
+  }
+
+  public void setSelectors(int selectors) {
+    this.selectors = selectors;
+  }
+
+  /**
+   * Maximum number of requests in flight per connection
+   */
+  public void setPipeline(int pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  public void setMessageSize(int messageSize) {
+    this.messageSize = messageSize;
+  }
+
+  /**
+   * Requests per second over all connections, 0 for as fast as possible
+   */
+  public void setRate(long rate) {
+    this.rate = rate;
+  }
+
+  public void setDuration(long duration, TimeUnit unit) {
+    this.durationNanos = unit.toNanos(duration);
+  }
+
+  /**
+   * Connect, send for the duration, wait a moment for the last responses and report
+   */
+  public Report run() throws IOException, InterruptedException {
+    if (connections < selectors || pipeline < 1 || messageSize < 1) {
+      throw new IllegalArgumentException("connections: " + connections + ", selectors: " + selectors
+          + ", pipeline: " + pipeline + ", messageSize: " + messageSize);
+    }
+    Driver[] drivers = new Driver[selectors];
+    Thread[] threads = new Thread[selectors];
+    // Every connection gets the same share of the rate
+    long interval = rate > 0 ? 1000000000L * connections / rate : 0;
+    long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+    try {
+      for (int i = 0; i < selectors; i++) {
+        int count = connections / selectors + (i < connections % selectors ? 1 : 0);
+        drivers[i] = new Driver(count, interval, start, start + durationNanos);
+      }
+      for (int i = 0; i < selectors; i++) {
+        threads[i] = new Thread(drivers[i], "load-" + i);
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } finally {
+      for (Driver driver : drivers) {
+        if (driver != null) {
+          driver.close();
+        }
+      }
+    }
+    long sent = 0;
+    long received = 0;
+    Histogram latency = new Histogram();
+    for (Driver driver : drivers) {
+      if (driver.failure != null) {
+        throw driver.failure;
+      }
+      sent += driver.sent;
+      received += driver.received;
+      latency.add(driver.latency);
+    }
+    return new Report(sent, received, durationNanos, latency);
+  }
+
+  /**
+   * One connection, the due times of its requests in flight are kept in a ring
+   */
+  private class Client {
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer out;
+    final long[] due = new long[pipeline];
+    int head;
+    int inFlight;
+    long nextDue;
+    long toWrite;
+    long bytesReceived;
+
+    Client(Selector selector, ByteBuffer template, long firstDue) throws IOException {
+      channel = SocketChannel.open(address);
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      key = channel.register(selector, SelectionKey.OP_READ, this);
+      out = template.duplicate();
+      nextDue = firstDue;
+    }
+  }
+
+  private class Driver implements Runnable {
+
+    final Selector selector;
+    final List<Client> clients = new ArrayList<>();
+    final Histogram latency = new Histogram();
+    final ByteBuffer in = ByteBuffer.allocateDirect(64 * 1024);
+    final long interval;
+    final long end;
+    long sent;
+    long received;
+    IOException failure;
+
+    Driver(int count, long interval, long start, long end) throws IOException {
+      this.selector = Selector.open();
+      this.interval = interval;
+      this.end = end;
+      ByteBuffer template = ByteBuffer.allocateDirect(messageSize * pipeline);
+      while (template.hasRemaining()) {
+        template.put((byte) 'x');
+      }
+      for (int i = 0; i < count; i++) {
+        // Spread the first requests over one interval
+        clients.add(new Client(selector, template, start + (count == 0 ? 0 : interval * i / count)));
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        long now;
+        // Stop sending at the end, then give the last responses one second
+        while ((now = System.nanoTime()) < end + TimeUnit.SECONDS.toNanos(1)) {
+          long wakeup = now + TimeUnit.MILLISECONDS.toNanos(1);
+          boolean pending = false;
+          for (Client client : clients) {
+            if (now < end) {
+              send(client, now);
+              // A full pipeline waits for responses, an overdue request must not spin the loop
+              if (client.inFlight < pipeline) {
+                wakeup = Math.min(wakeup, client.nextDue);
+              }
+            }
+            pending |= client.inFlight > 0;
+          }
+          if (now >= end && !pending) {
+            break;
+          }
+          // Less than a millisecond to wait is rounded up, not down to selectNow(), the lateness
+          // is measured anyway since latency counts from the due time
+          long timeout = wakeup > now ? Math.max(1, TimeUnit.NANOSECONDS.toMillis(wakeup - now)) : 0;
+          if (timeout > 0) {
+            selector.select(timeout);
+          } else {
+            selector.selectNow();
+          }
+          now = System.nanoTime();
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Client client = (Client) key.attachment();
+            if (key.isReadable()) {
+              read(client, now);
+            }
+            if (key.isValid() && key.isWritable()) {
+              write(client);
+            }
+          }
+        }
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+
+    private void send(Client client, long now) throws IOException {
+      while (client.inFlight < pipeline && (interval == 0 || client.nextDue <= now)) {
+        // Closed-loop: the request is due when it is sent
+        long due = interval == 0 ? now : client.nextDue;
+        client.due[(client.head + client.inFlight) % pipeline] = due;
+        client.inFlight++;
+        client.toWrite += messageSize;
+        client.nextDue += interval;
+        sent++;
+      }
+      if (client.toWrite > 0) {
+        write(client);
+      }
+    }
+
+    private void write(Client client) throws IOException {
+      ByteBuffer out = client.out;
+      out.clear();
+      out.limit((int) Math.min(client.toWrite, out.capacity()));
+      client.toWrite -= client.channel.write(out);
+      int ops = SelectionKey.OP_READ | (client.toWrite > 0 ? SelectionKey.OP_WRITE : 0);
+      if (client.key.interestOps() != ops) {
+        client.key.interestOps(ops);
+      }
+    }
+
+    private void read(Client client, long now) throws IOException {
+      in.clear();
+      int readed = client.channel.read(in);
+      if (readed == -1) {
+        throw new IOException("Connection closed by the server");
+      }
+      long before = client.bytesReceived / messageSize;
+      client.bytesReceived += readed;
+      long completed = client.bytesReceived / messageSize - before;
+      for (long i = 0; i < completed; i++) {
+        latency.record(now - client.due[client.head]);
+        client.head = (client.head + 1) % pipeline;
+        client.inFlight--;
+        received++;
+      }
+    }
+
+    void close() {
+      for (Client client : clients) {
+        try {
+          client.channel.close();
+        } catch (IOException e) {
+          // Ignore
+        }
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        // Ignore
+      }
+    }
+  }
+}
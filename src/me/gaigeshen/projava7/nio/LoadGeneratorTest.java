@@ -0,0 +1,68 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class LoadGeneratorTest {
+
+  @Test
+  public void multiReactorServer() throws Exception {
+
+    try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        new EchoHandler())) {
+      server.start();
+      System.out.println("multi reactor: " + run(server.getLocalAddress(), 20000));
+      System.out.println("multi reactor, closed-loop: " + run(server.getLocalAddress(), 0));
+    }
+  }
+
+  @Test
+  public void asyncEchoServer() throws Exception {
+
+    AsynchronousChannelGroup group = AsynchronousChannelGroup.withFixedThreadPool(2,
+        Executors.defaultThreadFactory());
+    try (AsyncEchoServer server = new AsyncEchoServer(new InetSocketAddress("127.0.0.1", 0), group)) {
+      server.start();
+      System.out.println("async: " + run(server.getLocalAddress(), 20000));
+    } finally {
+      group.shutdownNow();
+    }
+  }
+
+  @Test
+  public void threadPerConnectionServer() throws Exception {
+
+    try (ThreadPerConnectionServer server = new ThreadPerConnectionServer(new InetSocketAddress("127.0.0.1", 0))) {
+      server.start();
+      System.out.println("thread per connection: " + run(server.getLocalAddress(), 20000));
+    }
+  }
+
+  private static LoadGenerator.Report run(InetSocketAddress address, long rate) throws Exception {
+    LoadGenerator generator = new LoadGenerator(address);
+    generator.setConnections(64);
+    generator.setSelectors(2);
+    generator.setPipeline(4);
+    generator.setMessageSize(256);
+    generator.setRate(rate);
+    generator.setDuration(1, TimeUnit.SECONDS);
+    LoadGenerator.Report report = generator.run();
+    assertTrue(report.sent() > 0);
+    // Every request is answered once the generator has drained
+    assertEquals(report.sent(), report.received());
+    assertEquals(report.received(), report.latency().count());
+    return report;
+  }
+}
@@ -0,0 +1,293 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of a file of any size as a row of mapped segments. One map() call is
+ * limited to Integer.MAX_VALUE bytes, here the offsets are long and a value may span two
+ * segments. Segments are mapped when they are first touched and only a window of them
+ * stays mapped, the least recently used one is unmapped right away instead of waiting
+ * for the garbage collector to find the buffer.
+ * <p>
+ * Not thread-safe, every thread scanning a file should open its own.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class MappedFile implements Closeable {
+
+  /**
+   * Receives the decoded characters, the buffer is reused after the call returns
+   */
+  public interface CharsHandler {
+
+    void chars(CharBuffer chars) throws IOException;
+  }
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = field.get(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Before Java 9, the cleaner of the buffer is used
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private final FileChannel channel;
+  private final long size;
+  private final int segmentSize;
+  private final MappedByteBuffer[] segments;
+  private final Map<Integer, MappedByteBuffer> window;
+  private boolean closed;
+
+  /**
+   * @param segmentSize the bytes per segment
+   * @param maxMapped the number of segments mapped at the same time
+   */
+  public MappedFile(Path path, int segmentSize, final int maxMapped) throws IOException {
+    if (segmentSize < 1 || maxMapped < 1) {
+      throw new IllegalArgumentException("segmentSize: " + segmentSize + ", maxMapped: " + maxMapped);
+    }
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = channel.size();
+    this.segmentSize = segmentSize;
+    this.segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+    this.window = new LinkedHashMap<Integer, MappedByteBuffer>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+        if (size() > maxMapped) {
+          segments[eldest.getKey()] = null;
+          unmap(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Segments of 1 GB, four of them mapped at the same time
+   */
+  public static MappedFile open(Path path) throws IOException {
+    return new MappedFile(path, 1 << 30, 4);
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of segments mapped right now
+   */
+  int mapped() {
+    return window.size();
+  }
+
+  public byte get(long position) throws IOException {
+    checkIndex(position, 1);
+    return segment(position).get((int) (position % segmentSize));
+  }
+
+  /**
+   * Big-endian int at the position, which may span two segments
+   */
+  public int getInt(long position) throws IOException {
+    checkIndex(position, 4);
+    int offset = (int) (position % segmentSize);
+    if (offset <= segmentSize - 4) {
+      return segment(position).getInt(offset);
+    }
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      value = (value << 8) | (get(position + i) & 0xff);
+    }
+    return value;
+  }
+
+  /**
+   * Big-endian long at the position, which may span two segments
+   */
+  public long getLong(long position) throws IOException {
+    checkIndex(position, 8);
+    int offset = (int) (position % segmentSize);
+    if (offset <= segmentSize - 8) {
+      return segment(position).getLong(offset);
+    }
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (get(position + i) & 0xff);
+    }
+    return value;
+  }
+
+  /**
+   * Copies the bytes at the position into the destination
+   */
+  public void get(long position, byte[] dst, int offset, int length) throws IOException {
+    checkIndex(position, length);
+    while (length > 0) {
+      ByteBuffer segment = segment(position).duplicate();
+      segment.position((int) (position % segmentSize));
+      int count = Math.min(length, segment.remaining());
+      segment.get(dst, offset, count);
+      position += count;
+      offset += count;
+      length -= count;
+    }
+  }
+
+  /**
+   * Decodes the whole file segment by segment into the reused character buffer. A
+   * character split over two segments is completed with the first bytes of the next one.
+   *
+   * @return the number of characters decoded
+   */
+  public long decode(CharsetDecoder decoder, CharBuffer chars, CharsHandler handler) throws IOException {
+    decoder.reset();
+    chars.clear();
+    long total = 0;
+    // Bytes of a character split over two segments, no charset needs more than 16
+    ByteBuffer carry = ByteBuffer.allocate(16);
+    carry.flip();
+    for (long position = 0; position < size;) {
+      ByteBuffer segment = segment(position).duplicate();
+      segment.position((int) (position % segmentSize));
+      while (carry.hasRemaining() && segment.hasRemaining()) {
+        // Feed the next byte until the split character is complete
+        carry.compact();
+        carry.put(segment.get());
+        carry.flip();
+        total += decode(decoder, carry, chars, false, handler);
+      }
+      total += decode(decoder, segment, chars, false, handler);
+      if (segment.hasRemaining()) {
+        carry.compact();
+        carry.put(segment);
+        carry.flip();
+      }
+      position = (position / segmentSize + 1) * segmentSize;
+    }
+    total += decode(decoder, carry, chars, true, handler);
+    while (decoder.flush(chars).isOverflow()) {
+      total += drain(chars, handler);
+    }
+    total += drain(chars, handler);
+    return total;
+  }
+
+  private static long decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, boolean endOfInput,
+      CharsHandler handler) throws IOException {
+    long total = 0;
+    while (true) {
+      CoderResult result = decoder.decode(bytes, chars, endOfInput);
+      if (result.isOverflow()) {
+        total += drain(chars, handler);
+      } else if (result.isUnderflow()) {
+        return total;
+      } else {
+        result.throwException();
+      }
+    }
+  }
+
+  private static int drain(CharBuffer chars, CharsHandler handler) throws IOException {
+    chars.flip();
+    int count = chars.remaining();
+    if (count > 0) {
+      handler.chars(chars);
+    }
+    chars.clear();
+    return count;
+  }
+
+  private void checkIndex(long position, int length) throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    if (position < 0 || length < 0 || position > size - length) {
+      throw new IndexOutOfBoundsException("position: " + position + ", length: " + length + ", size: " + size);
+    }
+  }
+
+  private MappedByteBuffer segment(long position) throws IOException {
+    int index = (int) (position / segmentSize);
+    MappedByteBuffer segment = segments[index];
+    if (segment == null) {
+      long start = (long) index * segmentSize;
+      segment = channel.map(MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+      segments[index] = segment;
+      window.put(index, segment);
+    } else {
+      // Touch it for the least recently used order
+      window.get(index);
+    }
+    return segment;
+  }
+
+  /**
+   * Unmaps all segments, the buffers must not be used any more
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    Iterator<MappedByteBuffer> iterator = window.values().iterator();
+    while (iterator.hasNext()) {
+      unmap(iterator.next());
+      iterator.remove();
+    }
+    channel.close();
+  }
+
+  /**
+   * Releases the mapping now, with Unsafe.invokeCleaner since Java 9 and with the
+   * cleaner of the buffer before. Left to the garbage collector if neither works.
+   */
+  static void unmap(MappedByteBuffer buffer) {
+    try {
+      if (INVOKE_CLEANER != null) {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        return;
+      }
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Unmapped when the buffer is collected
+    }
+  }
+}
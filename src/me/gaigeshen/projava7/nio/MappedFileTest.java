@@ -0,0 +1,134 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class MappedFileTest {
+
+  @Test
+  public void readAcrossSegments() throws Exception {
+
+    Path path = Files.createTempFile("mapped", ".bin");
+    try {
+      byte[] content = new byte[100000];
+      new Random(1).nextBytes(content);
+      Files.write(path, content);
+      ByteBuffer expected = ByteBuffer.wrap(content);
+
+      try (MappedFile file = new MappedFile(path, 4096, 2)) {
+        assertEquals(content.length, file.size());
+        Random random = new Random(2);
+        for (int i = 0; i < 10000; i++) {
+          int position = random.nextInt(content.length - 8);
+          assertEquals(expected.get(position), file.get(position));
+          assertEquals(expected.getInt(position), file.getInt(position));
+          assertEquals(expected.getLong(position), file.getLong(position));
+          assertTrue(file.mapped() <= 2);
+        }
+        // Right over a boundary
+        assertEquals(expected.getLong(4096 - 3), file.getLong(4096 - 3));
+        byte[] bytes = new byte[10000];
+        file.get(4000, bytes, 0, bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+          assertEquals(content[4000 + i], bytes[i]);
+        }
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void streamingDecode() throws Exception {
+
+    Path path = Files.createTempFile("mapped", ".txt");
+    try {
+      StringBuilder text = new StringBuilder();
+      for (int i = 0; i < 5000; i++) {
+        text.append("line ").append(i).append(" 中文 😀\n");
+      }
+      Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+
+      // An odd segment size splits the two, three and four byte characters
+      try (MappedFile file = new MappedFile(path, 1001, 1)) {
+        final StringBuilder decoded = new StringBuilder();
+        long count = file.decode(StandardCharsets.UTF_8.newDecoder(), CharBuffer.allocate(100),
+            new MappedFile.CharsHandler() {
+              @Override
+              public void chars(CharBuffer chars) {
+                decoded.append(chars);
+              }
+            });
+        assertEquals(text.length(), count);
+        assertEquals(text.toString(), decoded.toString());
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void largerThanTwoGigabytes() throws Exception {
+
+    Path path = Files.createTempFile("mapped", ".sparse");
+    try {
+      long size = 3L * 1024 * 1024 * 1024;
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        // Sparse, only the written pages take space
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(0, 42).clear();
+        channel.write(buffer, Integer.MAX_VALUE - 3);
+        buffer.putLong(0, 4242).clear();
+        channel.write(buffer, size - 8);
+      }
+      try (MappedFile file = MappedFile.open(path)) {
+        assertEquals(size, file.size());
+        assertEquals(42, file.getLong(Integer.MAX_VALUE - 3));
+        assertEquals(4242, file.getLong(size - 8));
+        assertEquals(0, file.getLong(size / 2));
+        assertEquals(2, file.mapped());
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void closed() throws Exception {
+
+    Path path = Files.createTempFile("mapped", ".bin");
+    try {
+      Files.write(path, new byte[] { 1, 2, 3 });
+      MappedFile file = new MappedFile(path, 2, 2);
+      assertEquals(3, file.get(2));
+      file.close();
+      assertEquals(0, file.mapped());
+      try {
+        file.get(0);
+        throw new AssertionError();
+      } catch (ClosedChannelException e) {
+        // Expected
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
@@ -0,0 +1,332 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the metadata of many files at once, one call per file for all attributes: with
+ * the "unix" view where the file system has it, so mode, owner ids and inode come with
+ * the same stat as size and times, otherwise the basic attributes. Files.isReadable(),
+ * isWritable(), size() and getAttribute() are a system call each.
+ * <p>
+ * The files are read in parallel on the executor, in batches, and the records are kept
+ * for the time to live. Files that do not exist are remembered as well. Links are not
+ * followed.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class MetadataReader {
+
+  private static final String UNIX_ATTRIBUTES = "unix:size,lastModifiedTime,lastAccessTime,creationTime,"
+      + "isRegularFile,isDirectory,isSymbolicLink,mode,ino,dev,nlink,uid,gid,ctime";
+  private static final int BATCH = 256;
+
+  /**
+   * The metadata of one file, -1 for what the file system does not tell
+   */
+  public static final class FileMeta {
+
+    // No type for a file that does not exist
+    static final byte MISSING = 0, REGULAR = 1, DIRECTORY = 2, LINK = 3, OTHER = 4;
+
+    private long size;
+    private long modified;
+    private long accessed;
+    private long created;
+    private long changed = -1;
+    private long device = -1;
+    private long inode = -1;
+    private int mode = -1;
+    private int uid = -1;
+    private int gid = -1;
+    private int links = -1;
+    private byte type;
+    // When read, for the time to live
+    long readAt;
+
+    private FileMeta() {
+    }
+
+    public long size() {
+      return size;
+    }
+
+    /**
+     * In milliseconds, like the ones below
+     */
+    public long lastModified() {
+      return modified;
+    }
+
+    public long lastAccessed() {
+      return accessed;
+    }
+
+    public long created() {
+      return created;
+    }
+
+    /**
+     * Status change time, ctime
+     */
+    public long changed() {
+      return changed;
+    }
+
+    public long device() {
+      return device;
+    }
+
+    public long inode() {
+      return inode;
+    }
+
+    /**
+     * File type and permission bits, st_mode
+     */
+    public int mode() {
+      return mode;
+    }
+
+    public int uid() {
+      return uid;
+    }
+
+    public int gid() {
+      return gid;
+    }
+
+    public int links() {
+      return links;
+    }
+
+    public boolean isRegularFile() {
+      return type == REGULAR;
+    }
+
+    public boolean isDirectory() {
+      return type == DIRECTORY;
+    }
+
+    public boolean isSymbolicLink() {
+      return type == LINK;
+    }
+
+    public boolean isOther() {
+      return type == OTHER;
+    }
+
+    /**
+     * Returns the permissions from the mode, null without one
+     */
+    public Set<PosixFilePermission> permissions() {
+      if (mode == -1) {
+        return null;
+      }
+      Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+      // OWNER_READ first, down to OTHERS_EXECUTE, as the bits from 0400 to 0001
+      PosixFilePermission[] all = PosixFilePermission.values();
+      for (int i = 0; i < all.length; i++) {
+        if ((mode & (0400 >> i)) != 0) {
+          permissions.add(all[i]);
+        }
+      }
+      return permissions;
+    }
+  }
+
+  private final ExecutorService executor;
+  private final long ttl;
+  private final boolean unix;
+  // Guarded by itself
+  private final Map<Path, FileMeta> cache;
+  private final AtomicLong reads = new AtomicLong();
+
+  /**
+   * @param ttl how long a record is used before the file is read again, 0 for no cache
+   * @param maxCached the number of records kept, the least recently used go first
+   */
+  public MetadataReader(ExecutorService executor, long ttl, TimeUnit unit, final int maxCached) {
+    this.executor = executor;
+    this.ttl = unit.toNanos(ttl);
+    this.cache = new LinkedHashMap<Path, FileMeta>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, FileMeta> eldest) {
+        return size() > maxCached;
+      }
+    };
+    this.unix = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+  }
+
+  /**
+   * Returns the metadata of one file, null if it does not exist
+   */
+  public FileMeta read(Path path) throws IOException {
+    long now = System.nanoTime();
+    FileMeta meta = cached(path, now);
+    if (meta == null) {
+      meta = load(path, now);
+    }
+    return meta.type == FileMeta.MISSING ? null : meta;
+  }
+
+  /**
+   * Returns the metadata of the files, the ones not existing are left out
+   */
+  public Map<Path, FileMeta> read(Collection<Path> paths) throws IOException {
+    long now = System.nanoTime();
+    Map<Path, FileMeta> found = new HashMap<>(paths.size() * 2);
+    List<Path> missed = new ArrayList<>();
+    for (Path path : paths) {
+      FileMeta meta = cached(path, now);
+      if (meta == null) {
+        missed.add(path);
+      } else if (meta.type != FileMeta.MISSING) {
+        found.put(path, meta);
+      }
+    }
+    if (missed.size() <= BATCH) {
+      // Not worth a trip through the executor
+      load(missed, now, found);
+      return found;
+    }
+    List<Future<Map<Path, FileMeta>>> batches = new ArrayList<>();
+    for (int from = 0; from < missed.size(); from += BATCH) {
+      final List<Path> batch = missed.subList(from, Math.min(from + BATCH, missed.size()));
+      final long readAt = now;
+      batches.add(executor.submit(new Callable<Map<Path, FileMeta>>() {
+        @Override
+        public Map<Path, FileMeta> call() throws IOException {
+          Map<Path, FileMeta> loaded = new HashMap<>(batch.size() * 2);
+          load(batch, readAt, loaded);
+          return loaded;
+        }
+      }));
+    }
+    try {
+      for (Future<Map<Path, FileMeta>> batch : batches) {
+        found.putAll(batch.get());
+      }
+    } catch (InterruptedException e) {
+      for (Future<Map<Path, FileMeta>> batch : batches) {
+        batch.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    }
+    return found;
+  }
+
+  /**
+   * Forgets the record of the file, for one known to have changed
+   */
+  public void invalidate(Path path) {
+    synchronized (cache) {
+      cache.remove(path);
+    }
+  }
+
+  private void load(List<Path> paths, long now, Map<Path, FileMeta> found) throws IOException {
+    for (Path path : paths) {
+      FileMeta meta = load(path, now);
+      if (meta.type != FileMeta.MISSING) {
+        found.put(path, meta);
+      }
+    }
+  }
+
+  private FileMeta cached(Path path, long now) {
+    FileMeta meta;
+    synchronized (cache) {
+      meta = cache.get(path);
+    }
+    if (meta == null || now - meta.readAt >= ttl) {
+      return null;
+    }
+    return meta;
+  }
+
+  private FileMeta load(Path path, long now) throws IOException {
+    reads.incrementAndGet();
+    FileMeta meta;
+    try {
+      meta = unix ? unix(path) : basic(path);
+    } catch (NoSuchFileException e) {
+      meta = new FileMeta();
+    }
+    if (ttl > 0) {
+      meta.readAt = now;
+      synchronized (cache) {
+        cache.put(path, meta);
+      }
+    }
+    return meta;
+  }
+
+  private static FileMeta unix(Path path) throws IOException {
+    Map<String, Object> attrs = Files.readAttributes(path, UNIX_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+    FileMeta meta = new FileMeta();
+    meta.size = (Long) attrs.get("size");
+    meta.modified = ((FileTime) attrs.get("lastModifiedTime")).toMillis();
+    meta.accessed = ((FileTime) attrs.get("lastAccessTime")).toMillis();
+    meta.created = ((FileTime) attrs.get("creationTime")).toMillis();
+    meta.changed = ((FileTime) attrs.get("ctime")).toMillis();
+    meta.device = (Long) attrs.get("dev");
+    meta.inode = (Long) attrs.get("ino");
+    meta.mode = (Integer) attrs.get("mode");
+    meta.uid = (Integer) attrs.get("uid");
+    meta.gid = (Integer) attrs.get("gid");
+    meta.links = (Integer) attrs.get("nlink");
+    meta.type = (Boolean) attrs.get("isRegularFile") ? FileMeta.REGULAR
+        : (Boolean) attrs.get("isDirectory") ? FileMeta.DIRECTORY
+            : (Boolean) attrs.get("isSymbolicLink") ? FileMeta.LINK : FileMeta.OTHER;
+    return meta;
+  }
+
+  private static FileMeta basic(Path path) throws IOException {
+    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    FileMeta meta = new FileMeta();
+    meta.size = attrs.size();
+    meta.modified = attrs.lastModifiedTime().toMillis();
+    meta.accessed = attrs.lastAccessTime().toMillis();
+    meta.created = attrs.creationTime().toMillis();
+    meta.type = attrs.isRegularFile() ? FileMeta.REGULAR
+        : attrs.isDirectory() ? FileMeta.DIRECTORY : attrs.isSymbolicLink() ? FileMeta.LINK : FileMeta.OTHER;
+    return meta;
+  }
+
+  /**
+   * The files read, for tests
+   */
+  long reads() {
+    return reads.get();
+  }
+}
@@ -0,0 +1,190 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class MetadataReaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void sameAsFiles() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Path dir = folder.newFolder().toPath();
+    try {
+      List<Path> paths = createFiles(dir, 1000);
+      paths.add(dir);
+      paths.add(Files.createSymbolicLink(dir.resolve("link"), paths.get(0)));
+      Path missing = dir.resolve("missing");
+      paths.add(missing);
+      boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+      if (posix) {
+        Files.setPosixFilePermissions(paths.get(1), PosixFilePermissions.fromString("rwxr-x---"));
+      }
+
+      MetadataReader reader = new MetadataReader(executor, 1, TimeUnit.MINUTES, 10000);
+      Map<Path, MetadataReader.FileMeta> metas = reader.read(paths);
+      assertEquals(paths.size() - 1, metas.size());
+      assertNull(metas.get(missing));
+      for (Path path : paths) {
+        if (path.equals(missing)) {
+          continue;
+        }
+        MetadataReader.FileMeta meta = metas.get(path);
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        assertEquals(attrs.size(), meta.size());
+        assertEquals(attrs.lastModifiedTime().toMillis(), meta.lastModified());
+        assertEquals(attrs.isRegularFile(), meta.isRegularFile());
+        assertEquals(attrs.isDirectory(), meta.isDirectory());
+        assertEquals(attrs.isSymbolicLink(), meta.isSymbolicLink());
+        if (posix && !attrs.isSymbolicLink()) {
+          assertEquals(Files.getPosixFilePermissions(path), meta.permissions());
+        }
+        if (attrs.fileKey() != null) {
+          assertTrue(attrs.fileKey().toString().contains("ino=" + meta.inode() + ")"));
+        }
+      }
+      assertEquals(paths.size(), reader.reads());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void cached() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Path dir = folder.newFolder().toPath();
+    try {
+      List<Path> paths = createFiles(dir, 600);
+      Path missing = dir.resolve("missing");
+      MetadataReader reader = new MetadataReader(executor, 200, TimeUnit.MILLISECONDS, 10000);
+
+      assertEquals(600, reader.read(paths).size());
+      assertNull(reader.read(missing));
+      assertEquals(601, reader.reads());
+      assertEquals(600, reader.read(paths).size());
+      assertNotNull(reader.read(paths.get(0)));
+
+      // Not existing is remembered too, until invalidated or expired
+      Files.createFile(missing);
+      assertNull(reader.read(missing));
+      assertEquals(601, reader.reads());
+      reader.invalidate(missing);
+      assertNotNull(reader.read(missing));
+      assertEquals(602, reader.reads());
+
+      Thread.sleep(250);
+      assertEquals(600, reader.read(paths).size());
+      assertEquals(1202, reader.reads());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void leastRecentlyUsedGoesFirst() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Path dir = folder.newFolder().toPath();
+    try {
+      List<Path> paths = createFiles(dir, 600);
+      MetadataReader reader = new MetadataReader(executor, 1, TimeUnit.HOURS, 100);
+
+      reader.read(paths.subList(0, 100));
+      assertNotNull(reader.read(paths.get(0)));
+      assertEquals(100, reader.reads());
+      // A full cache still takes the new records, in place of the least recently used
+      reader.read(paths.subList(100, 600));
+      assertEquals(600, reader.reads());
+      assertNotNull(reader.read(paths.get(599)));
+      assertEquals(600, reader.reads());
+      assertNotNull(reader.read(paths.get(0)));
+      assertEquals(601, reader.reads());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Six Files calls per file against one read per file, files with -DmetadataReader.files
+   */
+  @Test
+  public void fewerCalls() throws Exception {
+
+    int count = Integer.getInteger("metadataReader.files", 20000);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Path dir = folder.newFolder().toPath();
+    try {
+      List<Path> paths = createFiles(dir, count);
+      for (int round = 0; round < 3; round++) {
+        long start = System.nanoTime();
+        long total = 0;
+        for (Path path : paths) {
+          if (Files.isReadable(path) && Files.isWritable(path) && !Files.isExecutable(path)
+              && Files.isRegularFile(path)) {
+            total += Files.size(path) + Files.getLastModifiedTime(path).toMillis() % 2;
+          }
+        }
+        long files = System.nanoTime() - start;
+
+        MetadataReader reader = new MetadataReader(executor, 1, TimeUnit.MINUTES, count);
+        start = System.nanoTime();
+        long bulkTotal = 0;
+        for (MetadataReader.FileMeta meta : reader.read(paths).values()) {
+          if (meta.isRegularFile()) {
+            bulkTotal += meta.size() + meta.lastModified() % 2;
+          }
+        }
+        long bulk = System.nanoTime() - start;
+        assertEquals(total, bulkTotal);
+        assertEquals(count, reader.reads());
+
+        start = System.nanoTime();
+        reader.read(paths);
+        long cached = System.nanoTime() - start;
+        assertEquals(count, reader.reads());
+        System.out.println(count + " files, Files " + count * 6 + " calls " + files / 1000000 + " ms, bulk "
+            + reader.reads() + " reads " + bulk / 1000000 + " ms, cached " + cached / 1000000 + " ms");
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static List<Path> createFiles(Path dir, int count) throws IOException {
+    List<Path> paths = new ArrayList<>();
+    byte[] content = new byte[100];
+    for (int i = 0; i < count; i++) {
+      paths.add(Files.write(dir.resolve("file" + i), content));
+    }
+    return paths;
+  }
+}
@@ -0,0 +1,278 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Non-blocking server with one acceptor selector and a number of worker selectors,
+ * by default one per core. The acceptor only accepts connections and spreads them
+ * over the workers, reads and writes happen on the worker (reactor) threads.
+ * <p>
+ * A reactor or the acceptor stopped by an I/O error throws it as an
+ * UncheckedIOException, which goes to the uncaught exception handler of its thread.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class MultiReactorServer implements Closeable {
+
+  /**
+   * How accepted connections are spread over the reactors
+   */
+  public enum Balance {
+    ROUND_ROBIN, LEAST_LOADED
+  }
+
+  private static final long ACCEPT_BACKOFF_MILLIS = 50;
+
+  private final InetSocketAddress address;
+  private final Balance balance;
+  private final Reactor[] reactors;
+  private final Thread[] threads;
+  private final AtomicLong accepted = new AtomicLong();
+  private final Histogram acceptNanos = new Histogram();
+  private final ServerMetrics metrics;
+  private ObjectName objectName;
+  private Selector selector;
+  private ServerSocketChannel channel;
+  private Thread acceptor;
+  private int next;
+  private volatile boolean running;
+
+  public MultiReactorServer(InetSocketAddress address, ConnectionHandler handler) throws IOException {
+    this(address, Runtime.getRuntime().availableProcessors(), Balance.ROUND_ROBIN, handler);
+  }
+
+  public MultiReactorServer(InetSocketAddress address, int workers, Balance balance,
+      ConnectionHandler handler) throws IOException {
+    if (workers < 1) {
+      throw new IllegalArgumentException("workers: " + workers);
+    }
+    this.address = address;
+    this.balance = balance;
+    this.reactors = new Reactor[workers];
+    this.threads = new Thread[workers];
+    ReactorMetrics[] reactorMetrics = new ReactorMetrics[workers];
+    for (int i = 0; i < workers; i++) {
+      reactors[i] = new Reactor(handler);
+      reactorMetrics[i] = reactors[i].metrics();
+    }
+    this.metrics = new ServerMetrics(this, reactorMetrics, accepted, acceptNanos);
+  }
+
+  /**
+   * Set the idle timeouts, 0 disables a timeout. Deadlines are kept in a timing wheel
+   * per reactor with a resolution of 100 milliseconds, the handler is told through
+   * {@link ConnectionHandler#idle(Connection, ConnectionHandler.IdleState)}. Must be
+   * called before {@link #start()}.
+   *
+   * @param read nothing was read from the peer
+   * @param write queued bytes were not written
+   * @param all nothing was read or written
+   */
+  public void setIdleTimeouts(long read, long write, long all, TimeUnit unit) {
+    if (running) {
+      throw new IllegalStateException("Server started already");
+    }
+    for (Reactor reactor : reactors) {
+      reactor.setIdleTimeouts(unit.toNanos(read), unit.toNanos(write), unit.toNanos(all));
+    }
+  }
+
+  /**
+   * Bind the server socket channel and start the acceptor and reactor threads
+   */
+  public void start() throws IOException {
+    selector = Selector.open();
+    channel = ServerSocketChannel.open();
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.SO_RCVBUF, 256 * 1024);
+    channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    channel.bind(address, 1024);
+    channel.register(selector, SelectionKey.OP_ACCEPT);
+
+    running = true;
+    for (int i = 0; i < reactors.length; i++) {
+      threads[i] = new Thread(reactors[i], "reactor-" + i);
+      threads[i].start();
+    }
+    acceptor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        accept();
+      }
+    }, "acceptor");
+    acceptor.start();
+  }
+
+  /**
+   * Returns the bound address, useful if the server was bound to port 0
+   */
+  public InetSocketAddress getLocalAddress() throws IOException {
+    return (InetSocketAddress) channel.getLocalAddress();
+  }
+
+  public int workers() {
+    return reactors.length;
+  }
+
+  /**
+   * Returns the number of open connections per reactor
+   */
+  public int[] connections() {
+    int[] result = new int[reactors.length];
+    for (int i = 0; i < reactors.length; i++) {
+      result[i] = reactors[i].connections();
+    }
+    return result;
+  }
+
+  /**
+   * Returns the metrics of the event loops, they are collected all the time
+   */
+  public ServerMetrics metrics() {
+    return metrics;
+  }
+
+  /**
+   * Register the metrics with the platform MBean server, they are unregistered when
+   * the server is closed
+   */
+  public void registerMBean() throws JMException, IOException {
+    MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+    objectName = new ObjectName("me.gaigeshen.projava7.nio:type=MultiReactorServer,port="
+        + getLocalAddress().getPort());
+    mbeans.registerMBean(metrics, objectName);
+  }
+
+  private void accept() {
+    try {
+      while (running) {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid() || !key.isAcceptable()) {
+            continue;
+          }
+          // Drain the backlog, there may be more than one pending connection
+          long start = System.nanoTime();
+          while (running) {
+            SocketChannel socket;
+            try {
+              socket = channel.accept();
+            } catch (ClosedChannelException e) {
+              throw e;
+            } catch (IOException e) {
+              // Out of file descriptors most likely, give the reactors time to close some
+              Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+              break;
+            }
+            if (socket == null) {
+              break;
+            }
+            try {
+              socket.configureBlocking(false);
+              socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+              // Reset by the peer already, only this connection is lost
+              closeQuietly(socket);
+              continue;
+            }
+            // Counted before the reactor can serve it, so no client sees a stale count
+            accepted.getAndIncrement();
+            choose().register(socket);
+            long end = System.nanoTime();
+            acceptNanos.record(end - start);
+            start = end;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      if (running) {
+        throw new UncheckedIOException("Acceptor stopped", e);
+      }
+    }
+  }
+
+  private static void closeQuietly(SocketChannel socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // Ignore
+    }
+  }
+
+  private Reactor choose() {
+    if (balance == Balance.LEAST_LOADED) {
+      // Start from the next reactor, so ties are spread too
+      Reactor chosen = reactors[next];
+      for (int i = 1; i < reactors.length; i++) {
+        Reactor reactor = reactors[(next + i) % reactors.length];
+        if (reactor.connections() < chosen.connections()) {
+          chosen = reactor;
+        }
+      }
+      next = (next + 1) % reactors.length;
+      return chosen;
+    }
+    Reactor chosen = reactors[next];
+    next = (next + 1) % reactors.length;
+    return chosen;
+  }
+
+  @Override
+  public void close() throws IOException {
+    running = false;
+    if (objectName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      } catch (JMException e) {
+        // Ignore
+      }
+      objectName = null;
+    }
+    if (selector != null) {
+      selector.wakeup();
+    }
+    try {
+      if (acceptor != null) {
+        acceptor.join();
+      }
+      for (int i = 0; i < reactors.length; i++) {
+        reactors[i].shutdown();
+        if (threads[i] != null) {
+          threads[i].join();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (channel != null) {
+        channel.close();
+      }
+      if (selector != null) {
+        selector.close();
+      }
+    }
+  }
+}
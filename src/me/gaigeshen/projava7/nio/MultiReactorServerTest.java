@@ -0,0 +1,167 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class MultiReactorServerTest {
+
+  @Test
+  public void echo() throws Exception {
+
+    try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        2, MultiReactorServer.Balance.LEAST_LOADED, new EchoHandler())) {
+      server.start();
+
+      try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+        socket.write(ByteBuffer.wrap("Hello!".getBytes(StandardCharsets.UTF_8)));
+        ByteBuffer buffer = ByteBuffer.allocate(6);
+        while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+        }
+        assertEquals("Hello!", new String(buffer.array(), StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  @Test
+  public void failingHandlerClosesItsConnection() throws Exception {
+
+    try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        1, MultiReactorServer.Balance.ROUND_ROBIN, new EchoHandler() {
+          @Override
+          public void read(Connection connection, ByteBuffer buffer) throws IOException {
+            if (buffer.get(0) == '!') {
+              throw new IllegalStateException("Bad input");
+            }
+            super.read(connection, buffer);
+          }
+        })) {
+      server.start();
+
+      try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+        socket.write(ByteBuffer.wrap("!".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(-1, socket.read(ByteBuffer.allocate(1)));
+      }
+      // The reactor is still there for the next connection
+      try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+        socket.write(ByteBuffer.wrap("Hello!".getBytes(StandardCharsets.UTF_8)));
+        ByteBuffer buffer = ByteBuffer.allocate(6);
+        while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+        }
+        assertEquals("Hello!", new String(buffer.array(), StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  @Test
+  public void idleTimeout() throws Exception {
+
+    final CountDownLatch notified = new CountDownLatch(2);
+    MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        1, MultiReactorServer.Balance.ROUND_ROBIN, new EchoHandler() {
+          @Override
+          public void idle(Connection connection, IdleState state) throws IOException {
+            // Keep the connection the first time
+            notified.countDown();
+            if (notified.getCount() == 0) {
+              connection.close();
+            }
+          }
+        });
+    server.setIdleTimeouts(300, 0, 0, TimeUnit.MILLISECONDS);
+    try {
+      server.start();
+      try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+        long start = System.nanoTime();
+        // Blocks until the server closes the connection
+        assertEquals(-1, socket.read(ByteBuffer.allocate(1)));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("closed after " + elapsed + " ms", elapsed >= 550 && elapsed < 1500);
+      }
+    } finally {
+      server.close();
+    }
+  }
+
+  @Test
+  public void throughput() throws Exception {
+
+    // Connections per second and messages per second should grow with the number of workers,
+    // as long as there are enough cores for the reactors and the client threads
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int workers = 1; workers <= Math.max(cores, 1); workers *= 2) {
+      try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+          workers, MultiReactorServer.Balance.ROUND_ROBIN, new EchoHandler())) {
+        server.start();
+        InetSocketAddress address = server.getLocalAddress();
+
+        long connections = run(address, 16, 1000, false);
+        long messages = run(address, 64, 1000, true);
+
+        System.out.println("workers: " + workers + ", connections/s: " + connections
+            + ", messages/s: " + messages);
+      }
+    }
+  }
+
+  /**
+   * Run the clients for the given duration, returns connections or messages per second
+   */
+  private long run(final InetSocketAddress address, int clients, final long millis,
+      final boolean messages) throws Exception {
+
+    final AtomicLong count = new AtomicLong();
+    final CountDownLatch done = new CountDownLatch(clients);
+    final long deadline = System.currentTimeMillis() + millis;
+
+    for (int i = 0; i < clients; i++) {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            if (messages) {
+              try (SocketChannel socket = SocketChannel.open(address)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(128);
+                while (System.currentTimeMillis() < deadline) {
+                  buffer.clear();
+                  socket.write(buffer);
+                  buffer.clear();
+                  while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+                  }
+                  count.incrementAndGet();
+                }
+              }
+            } else {
+              while (System.currentTimeMillis() < deadline) {
+                SocketChannel.open(address).close();
+                count.incrementAndGet();
+              }
+            }
+          } catch (Exception e) {
+            System.out.println("Client failed: " + e);
+          } finally {
+            done.countDown();
+          }
+        }
+      }).start();
+    }
+    done.await();
+    return count.get() * 1000 / millis;
+  }
+}
@@ -0,0 +1,469 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Walks a file tree on a ForkJoinPool, one task per directory, idle workers steal the
+ * directories others have found. Links are not followed, like with Files.walkFileTree.
+ * <p>
+ * The visitor is called in one of two ways:
+ * <ul>
+ * <li>{@link Order#UNORDERED}: from the pool threads as the entries are read, so it has
+ * to be thread-safe. preVisitDirectory comes before the entries of the directory and
+ * postVisitDirectory after its whole subtree, otherwise the calls of different
+ * directories interleave. SKIP_SIBLINGS from preVisitDirectory only skips the directory,
+ * the siblings are already on their way.</li>
+ * <li>{@link Order#SORTED}: from the calling thread, depth-first with the entries of a
+ * directory sorted by name and the same results as Files.walkFileTree. The directories
+ * are still read in parallel, at most {@value #READ_AHEAD} of them ahead of the visitor,
+ * so the listings waiting for it stay bounded. A directory found while that many are
+ * waiting is read by the calling thread once the visitor gets to it. The directories of
+ * a subtree the visitor skips are not read any further.</li>
+ * </ul>
+ * Reading a directory takes a permit of the file store it is on, which bounds the
+ * number of directories read at the same time on one device, an NFS mount for example.
+ * Where the "unix" view exists the store is told from the device of the directory, one
+ * more stat per directory, not per file. Elsewhere all directories count against the
+ * store of the start, mount points below it are not told apart.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class ParallelFileWalker {
+
+  public enum Order {
+    UNORDERED, SORTED
+  }
+
+  /**
+   * The number of directories read but not visited yet in sorted order
+   */
+  static final int READ_AHEAD = 1024;
+
+  private static final Comparator<Entry> BY_NAME = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry a, Entry b) {
+      return a.path.getFileName().compareTo(b.path.getFileName());
+    }
+  };
+
+  private final ForkJoinPool pool;
+  private final int perStoreConcurrency;
+  private final Order order;
+  private final ConcurrentMap<Object, Semaphore> stores = new ConcurrentHashMap<>();
+  private final AtomicLong reads = new AtomicLong();
+
+  /**
+   * @param perStoreConcurrency the number of directories read at the same time on one
+   *          file store
+   */
+  public ParallelFileWalker(ForkJoinPool pool, int perStoreConcurrency, Order order) {
+    if (perStoreConcurrency < 1) {
+      throw new IllegalArgumentException("perStoreConcurrency: " + perStoreConcurrency);
+    }
+    this.pool = pool;
+    this.perStoreConcurrency = perStoreConcurrency;
+    this.order = order;
+  }
+
+  /**
+   * Walks the tree from the start, exceptions of the visitor end the walk and are
+   * thrown here
+   */
+  public void walk(Path start, FileVisitor<? super Path> visitor) throws IOException {
+    BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(start, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (IOException e) {
+      visitor.visitFileFailed(start, e);
+      return;
+    }
+    if (!attrs.isDirectory()) {
+      visitor.visitFile(start, attrs);
+      return;
+    }
+    Walk walk = new Walk(visitor);
+    if (!start.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+      walk.store = Files.getFileStore(start);
+    }
+    DirectoryTask root = new DirectoryTask(walk, start, attrs);
+    if (order == Order.UNORDERED) {
+      pool.invoke(root);
+    } else {
+      try {
+        replay(walk, root);
+      } finally {
+        walk.cancelled.set(true);
+      }
+    }
+    IOException failure = walk.failure.get();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Hands the listings to the visitor in order, waiting for the directories not read yet
+   */
+  private static FileVisitResult replay(Walk walk, DirectoryTask task) throws IOException {
+    // Not forked for want of room in the window, read here
+    Listing listing = task.forked ? task.join() : task.invoke();
+    task.taken();
+    if (listing == null) {
+      return FileVisitResult.TERMINATE;
+    }
+    FileVisitor<? super Path> visitor = walk.visitor;
+    if (listing.openFailure != null) {
+      return visitor.visitFileFailed(task.dir, listing.openFailure);
+    }
+    FileVisitResult result = visitor.preVisitDirectory(task.dir, task.attrs);
+    if (result != FileVisitResult.CONTINUE) {
+      skipAll(listing.entries, 0);
+      return result == FileVisitResult.SKIP_SUBTREE ? FileVisitResult.CONTINUE : result;
+    }
+    for (int i = 0; i < listing.entries.size(); i++) {
+      Entry entry = listing.entries.get(i);
+      if (entry.task != null) {
+        result = replay(walk, entry.task);
+        // Done with the subtree, let it be collected
+        entry.task = null;
+      } else if (entry.failure != null) {
+        result = visitor.visitFileFailed(entry.path, entry.failure);
+      } else {
+        result = visitor.visitFile(entry.path, entry.attrs);
+      }
+      if (result == FileVisitResult.TERMINATE) {
+        return result;
+      }
+      if (result == FileVisitResult.SKIP_SIBLINGS) {
+        skipAll(listing.entries, i + 1);
+        break;
+      }
+    }
+    result = visitor.postVisitDirectory(task.dir, listing.readFailure);
+    return result == FileVisitResult.SKIP_SIBLINGS ? FileVisitResult.CONTINUE : result;
+  }
+
+  /**
+   * Stops reading the subdirectories among the entries from the index on
+   */
+  private static void skipAll(List<Entry> entries, int from) {
+    for (int i = from; i < entries.size(); i++) {
+      DirectoryTask task = entries.get(i).task;
+      if (task != null) {
+        entries.get(i).task = null;
+        task.skip();
+      }
+    }
+  }
+
+  /**
+   * State of one walk shared by its tasks
+   */
+  private static class Walk {
+
+    final FileVisitor<? super Path> visitor;
+    // Directories forked ahead of the visitor in sorted order
+    final Semaphore readAhead = new Semaphore(READ_AHEAD);
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    final AtomicReference<IOException> failure = new AtomicReference<>();
+    // Of the start, only without the unix view
+    FileStore store;
+
+    Walk(FileVisitor<? super Path> visitor) {
+      this.visitor = visitor;
+    }
+
+    void fail(IOException e) {
+      failure.compareAndSet(null, e);
+      cancelled.set(true);
+    }
+  }
+
+  private static class Entry {
+
+    final Path path;
+    final BasicFileAttributes attrs;
+    final IOException failure;
+    DirectoryTask task;
+
+    Entry(Path path, BasicFileAttributes attrs, IOException failure) {
+      this.path = path;
+      this.attrs = attrs;
+      this.failure = failure;
+    }
+  }
+
+  /**
+   * The entries of a directory, kept for the visitor in sorted order only
+   */
+  private static class Listing {
+
+    final List<Entry> entries = new ArrayList<>();
+    IOException openFailure;
+    IOException readFailure;
+  }
+
+  private class DirectoryTask extends RecursiveTask<Listing> {
+
+    private static final long serialVersionUID = 1L;
+
+    final transient Walk walk;
+    final transient Path dir;
+    final transient BasicFileAttributes attrs;
+    // Sorted order only: forked with a permit of the read-ahead window
+    transient boolean forked;
+    // Guarded by this, the listing is kept until taken so that a skip reaches the subtree
+    private transient boolean skipped;
+    private transient Listing listing;
+
+    DirectoryTask(Walk walk, Path dir, BasicFileAttributes attrs) {
+      this.walk = walk;
+      this.dir = dir;
+      this.attrs = attrs;
+    }
+
+    @Override
+    protected Listing compute() {
+      if (walk.cancelled.get() || isSkipped()) {
+        return null;
+      }
+      Listing listing = null;
+      try {
+        listing = read();
+        if (order == Order.UNORDERED && listing != null) {
+          visit(listing);
+        } else if (listing != null && !publish(listing)) {
+          // Skipped while reading, so are the subdirectories forked meanwhile
+          skipAll(listing.entries, 0);
+          return null;
+        }
+      } catch (IOException e) {
+        walk.fail(e);
+      } finally {
+        if (order == Order.UNORDERED && listing != null) {
+          // No visitor calls of the subtree after this directory is done
+          join(listing);
+        }
+      }
+      return listing;
+    }
+
+    /**
+     * Reads the entries and forks a task for every subdirectory
+     */
+    private Listing read() throws IOException {
+      Listing listing = new Listing();
+      Semaphore permits;
+      try {
+        permits = store(walk, dir);
+      } catch (IOException e) {
+        // Gone since it was listed
+        listing.openFailure = e;
+        return listing;
+      }
+      acquire(permits);
+      try {
+        DirectoryStream<Path> stream;
+        reads.incrementAndGet();
+        try {
+          stream = Files.newDirectoryStream(dir);
+        } catch (IOException e) {
+          listing.openFailure = e;
+          return listing;
+        }
+        try {
+          if (order == Order.UNORDERED) {
+            FileVisitResult result = walk.visitor.preVisitDirectory(dir, attrs);
+            if (result == FileVisitResult.TERMINATE) {
+              walk.cancelled.set(true);
+            }
+            if (result != FileVisitResult.CONTINUE) {
+              return null;
+            }
+          }
+          for (Path path : stream) {
+            if (walk.cancelled.get()) {
+              return null;
+            }
+            try {
+              listing.entries.add(new Entry(path,
+                  Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS), null));
+            } catch (IOException e) {
+              listing.entries.add(new Entry(path, null, e));
+            }
+          }
+        } catch (DirectoryIteratorException e) {
+          listing.readFailure = e.getCause();
+        } finally {
+          stream.close();
+        }
+      } finally {
+        permits.release();
+      }
+      if (order == Order.SORTED) {
+        Collections.sort(listing.entries, BY_NAME);
+      }
+      for (Entry entry : listing.entries) {
+        if (entry.attrs != null && entry.attrs.isDirectory()) {
+          entry.task = new DirectoryTask(walk, entry.path, entry.attrs);
+          if (order == Order.UNORDERED) {
+            entry.task.fork();
+          } else if (walk.readAhead.tryAcquire()) {
+            entry.task.forked = true;
+            // This may be the calling thread, not a worker of the pool
+            pool.execute(entry.task);
+          }
+        }
+      }
+      return listing;
+    }
+
+    private synchronized boolean isSkipped() {
+      return skipped;
+    }
+
+    private synchronized boolean publish(Listing read) {
+      if (skipped) {
+        return false;
+      }
+      listing = read;
+      return true;
+    }
+
+    /**
+     * Called once the visitor has the listing, gives back the permit
+     */
+    void taken() {
+      synchronized (this) {
+        listing = null;
+      }
+      if (forked) {
+        walk.readAhead.release();
+      }
+    }
+
+    /**
+     * Called instead of taken() for a directory the visitor skips, the subdirectories
+     * read so far are skipped as well
+     */
+    void skip() {
+      Listing read;
+      synchronized (this) {
+        skipped = true;
+        read = listing;
+        listing = null;
+      }
+      if (forked) {
+        walk.readAhead.release();
+      }
+      if (read != null) {
+        skipAll(read.entries, 0);
+      }
+    }
+
+    private void visit(Listing listing) throws IOException {
+      FileVisitor<? super Path> visitor = walk.visitor;
+      if (listing.openFailure != null) {
+        check(visitor.visitFileFailed(dir, listing.openFailure));
+        return;
+      }
+      boolean skipSiblings = false;
+      for (Entry entry : listing.entries) {
+        if (entry.task != null || skipSiblings || walk.cancelled.get()) {
+          continue;
+        }
+        FileVisitResult result = entry.failure != null ? visitor.visitFileFailed(entry.path, entry.failure)
+            : visitor.visitFile(entry.path, entry.attrs);
+        skipSiblings = result == FileVisitResult.SKIP_SIBLINGS;
+        check(result);
+      }
+      join(listing);
+      if (!walk.cancelled.get()) {
+        check(visitor.postVisitDirectory(dir, listing.readFailure));
+      }
+    }
+
+    private void join(Listing listing) {
+      for (Entry entry : listing.entries) {
+        if (entry.task != null) {
+          entry.task.join();
+        }
+      }
+    }
+
+    private void check(FileVisitResult result) {
+      if (result == FileVisitResult.TERMINATE) {
+        walk.cancelled.set(true);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of directories read so far
+   */
+  long reads() {
+    return reads.get();
+  }
+
+  /**
+   * Returns the permits of the file store of the directory
+   */
+  private Semaphore store(Walk walk, Path dir) throws IOException {
+    Object store = walk.store != null ? walk.store : Files.getAttribute(dir, "unix:dev", LinkOption.NOFOLLOW_LINKS);
+    Semaphore permits = stores.get(store);
+    if (permits == null) {
+      Semaphore created = new Semaphore(perStoreConcurrency);
+      permits = stores.putIfAbsent(store, created);
+      if (permits == null) {
+        permits = created;
+      }
+    }
+    return permits;
+  }
+
+  /**
+   * Lets the pool start another worker while this one waits for a permit
+   */
+  private static void acquire(final Semaphore permits) throws IOException {
+    try {
+      ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+        @Override
+        public boolean block() throws InterruptedException {
+          permits.acquire();
+          return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+          return permits.tryAcquire();
+        }
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+}
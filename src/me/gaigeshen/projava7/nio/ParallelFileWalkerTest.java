@@ -0,0 +1,354 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class ParallelFileWalkerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void unorderedVisitsEverything() throws Exception {
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Path root = folder.newFolder().toPath();
+    try {
+      createTree(root, 3, 5, 10);
+      Set<Path> expected = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+      final Set<Path> visited = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+      final Set<Path> post = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+      Files.walkFileTree(root, new Collector(expected));
+
+      new ParallelFileWalker(pool, 2, ParallelFileWalker.Order.UNORDERED).walk(root,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+              assertTrue(visited.add(dir));
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              // The directory is visited before its entries
+              assertTrue(visited.contains(file.getParent()));
+              assertTrue(visited.add(file));
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+              assertTrue(post.add(dir));
+              return FileVisitResult.CONTINUE;
+            }
+          });
+      assertEquals(expected, visited);
+      assertEquals(31, post.size());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void sortedLikeWalkFileTree() throws Exception {
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Path root = folder.newFolder().toPath();
+    try {
+      createTree(root, 3, 4, 6);
+      final Path skipped = root.resolve("d1");
+
+      final List<String> calls = new ArrayList<>();
+      SimpleFileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          calls.add("pre " + dir);
+          return dir.equals(skipped) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          calls.add("file " + file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+          calls.add("post " + dir);
+          return FileVisitResult.CONTINUE;
+        }
+      };
+      // walkFileTree does not sort, only the calls are the same
+      Files.walkFileTree(root, visitor);
+      Set<String> unsorted = new HashSet<>(calls);
+      calls.clear();
+
+      new ParallelFileWalker(pool, 2, ParallelFileWalker.Order.SORTED).walk(root, visitor);
+      assertEquals(unsorted, new HashSet<>(calls));
+      List<String> expected = new ArrayList<>();
+      expectedCalls(root, skipped, expected);
+      assertEquals(expected, calls);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void terminate() throws Exception {
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Path root = folder.newFolder().toPath();
+    try {
+      createTree(root, 3, 5, 10);
+      for (ParallelFileWalker.Order order : ParallelFileWalker.Order.values()) {
+        final AtomicInteger files = new AtomicInteger();
+        new ParallelFileWalker(pool, 2, order).walk(root, new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            return files.incrementAndGet() >= 10 ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+          }
+        });
+        int seen = files.get();
+        if (order == ParallelFileWalker.Order.SORTED) {
+          assertEquals(10, seen);
+        } else {
+          // Other workers may be inside visitFile already
+          assertTrue(seen < 1000);
+        }
+        // Nothing more after the walk returns
+        Thread.sleep(50);
+        assertEquals(seen, files.get());
+      }
+
+      // The exception of the visitor ends the walk
+      try {
+        new ParallelFileWalker(pool, 2, ParallelFileWalker.Order.UNORDERED).walk(root,
+            new SimpleFileVisitor<Path>() {
+              @Override
+              public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                throw new IOException("visitor failed");
+              }
+            });
+        assertFalse(true);
+      } catch (IOException e) {
+        assertEquals("visitor failed", e.getMessage());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void skippedSubtreesAreNotRead() throws Exception {
+
+    // The only worker is busy until the visitor has skipped the tree
+    ForkJoinPool pool = new ForkJoinPool(1);
+    final CountDownLatch skipped = new CountDownLatch(1);
+    Path root = folder.newFolder().toPath();
+    try {
+      createTree(root, 3, 5, 1);
+      pool.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            skipped.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      ParallelFileWalker walker = new ParallelFileWalker(pool, 2, ParallelFileWalker.Order.SORTED);
+      walker.walk(root, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+      });
+      skipped.countDown();
+      pool.shutdown();
+      assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+      // The root only, read by the calling thread, its subdirectories were waiting
+      assertEquals(1, walker.reads());
+    } finally {
+      skipped.countDown();
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void boundedReadAhead() throws Exception {
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Path root = folder.newFolder().toPath();
+    try {
+      // 1111 directories
+      createTree(root, 4, 10, 0);
+      final ParallelFileWalker walker = new ParallelFileWalker(pool, 4, ParallelFileWalker.Order.SORTED);
+      final AtomicLong readAhead = new AtomicLong();
+      final AtomicInteger visited = new AtomicInteger();
+      walker.walk(root, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+          if (visited.getAndIncrement() == 0) {
+            // A slow visitor, the pool reads on until the window is full
+            try {
+              Thread.sleep(500);
+            } catch (InterruptedException e) {
+              throw new InterruptedIOException();
+            }
+            readAhead.set(walker.reads());
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+      assertEquals(1111, visited.get());
+      assertTrue(readAhead.get() + " read", readAhead.get() <= ParallelFileWalker.READ_AHEAD + 1);
+      assertEquals(1111, walker.reads());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Files.walkFileTree against both orders, files with -DparallelFileWalker.files, 1000000
+   * for the big trees
+   */
+  @Test
+  public void walkSpeed() throws Exception {
+
+    int total = Integer.getInteger("parallelFileWalker.files", 100000);
+    ForkJoinPool pool = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+    Path root = folder.newFolder().toPath();
+    try {
+      // 100 files per directory, 10 subdirectories per directory
+      int depth = 1;
+      while (dirs(depth) * 100 < total) {
+        depth++;
+      }
+      createTree(root, depth, 10, 100);
+      for (int round = 0; round < 2; round++) {
+        final AtomicInteger files = new AtomicInteger();
+        SimpleFileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            files.incrementAndGet();
+            return FileVisitResult.CONTINUE;
+          }
+        };
+        long start = System.nanoTime();
+        Files.walkFileTree(root, visitor);
+        long serial = System.nanoTime() - start;
+        int expected = files.getAndSet(0);
+
+        start = System.nanoTime();
+        new ParallelFileWalker(pool, 8, ParallelFileWalker.Order.UNORDERED).walk(root, visitor);
+        long unordered = System.nanoTime() - start;
+        assertEquals(expected, files.getAndSet(0));
+
+        start = System.nanoTime();
+        new ParallelFileWalker(pool, 8, ParallelFileWalker.Order.SORTED).walk(root, visitor);
+        long sorted = System.nanoTime() - start;
+        assertEquals(expected, files.get());
+        System.out.println(expected + " files, walkFileTree " + serial / 1000000 + " ms, unordered "
+            + unordered / 1000000 + " ms, sorted " + sorted / 1000000 + " ms");
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static int dirs(int depth) {
+    int dirs = 0;
+    for (int i = 0, level = 1; i < depth; i++, level *= 10) {
+      dirs += level;
+    }
+    return dirs;
+  }
+
+  /**
+   * Every directory gets the files and, above the depth, the subdirectories
+   */
+  private static void createTree(Path dir, int depth, int subdirs, int files) throws IOException {
+    for (int i = 0; i < files; i++) {
+      Files.createFile(dir.resolve("f" + i));
+    }
+    if (depth > 1) {
+      for (int i = 0; i < subdirs; i++) {
+        createTree(Files.createDirectory(dir.resolve("d" + i)), depth - 1, subdirs, files);
+      }
+    }
+  }
+
+  private static void expectedCalls(Path dir, Path skipped, List<String> calls) throws IOException {
+    calls.add("pre " + dir);
+    if (dir.equals(skipped)) {
+      return;
+    }
+    List<Path> entries = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path path : stream) {
+        entries.add(path);
+      }
+    }
+    Collections.sort(entries);
+    for (Path path : entries) {
+      if (Files.isDirectory(path)) {
+        expectedCalls(path, skipped, calls);
+      } else {
+        calls.add("file " + path);
+      }
+    }
+    calls.add("post " + dir);
+  }
+
+  private static class Collector extends SimpleFileVisitor<Path> {
+
+    private final Set<Path> paths;
+
+    Collector(Set<Path> paths) {
+      this.paths = paths;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+      paths.add(dir);
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+      paths.add(file);
+      return FileVisitResult.CONTINUE;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package me.gaigeshen.projava7.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A direct byte buffer borrowed from a {@link BufferPool}. The handle lives as long as
+ * its buffer, so acquiring and releasing allocates nothing.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public final class PooledBuffer implements AutoCloseable {
+
+  private final BufferPool pool;
+  private final ByteBuffer buffer;
+  private final int sizeClass;
+  private final AtomicBoolean inUse = new AtomicBoolean();
+  private volatile Throwable trace;
+
+  PooledBuffer(BufferPool pool, ByteBuffer buffer, int sizeClass) {
+    this.pool = pool;
+    this.buffer = buffer;
+    this.sizeClass = sizeClass;
+  }
+
+  /**
+   * Wrap a buffer which does not belong to any pool, release does nothing
+   */
+  public static PooledBuffer wrap(ByteBuffer buffer) {
+    PooledBuffer pooled = new PooledBuffer(null, buffer, -1);
+    pooled.inUse.set(true);
+    return pooled;
+  }
+
+  public ByteBuffer buffer() {
+    return buffer;
+  }
+
+  int sizeClass() {
+    return sizeClass;
+  }
+
+  boolean inUse() {
+    return inUse.get();
+  }
+
+  Throwable trace() {
+    return trace;
+  }
+
+  void acquired(Throwable trace) {
+    this.trace = trace;
+    inUse.set(true);
+  }
+
+  /**
+   * Give the buffer back to its pool, the buffer must not be used afterwards
+   */
+  public void release() {
+    if (!inUse.compareAndSet(true, false)) {
+      throw new IllegalStateException("Buffer released twice");
+    }
+    trace = null;
+    if (pool != null) {
+      pool.release(this);
+    }
+  }
+
+  @Override
+  public void close() {
+    release();
+  }
+}
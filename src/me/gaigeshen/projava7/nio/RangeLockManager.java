@@ -0,0 +1,308 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Shared and exclusive locks on byte ranges of one file, for threads of this JVM and
+ * for other processes. The file is cut into stripes, a range locks the stripes it
+ * touches, so writers of disjoint regions do not wait for each other.
+ * <p>
+ * Inside the JVM every stripe maps to one of a fixed number of read-write locks, which
+ * are always taken in ascending order. Across processes every locked stripe holds one
+ * OS lock, FileChannel.lock(position, size, shared), shared by all threads holding the
+ * stripe shared. The JVM allows only one OS lock per region of a file, overlapping
+ * ranges of two threads would otherwise fail with OverlappingFileLockException. The OS
+ * lock is taken outside of any monitor, while another process holds the stripe only the
+ * threads waiting for that stripe wait.
+ * <p>
+ * Shared locks need a channel open for reading, exclusive locks one open for writing.
+ * A shared lock can not be upgraded to an exclusive one.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class RangeLockManager {
+
+  /**
+   * A locked range, released once by the thread that locked it
+   */
+  public final class RangeLock implements AutoCloseable {
+
+    private final long position;
+    private final long size;
+    private final boolean shared;
+    private final int[] slots;
+    private boolean released;
+
+    RangeLock(long position, long size, boolean shared, int[] slots) {
+      this.position = position;
+      this.size = size;
+      this.shared = shared;
+      this.slots = slots;
+    }
+
+    public long position() {
+      return position;
+    }
+
+    public long size() {
+      return size;
+    }
+
+    public boolean isShared() {
+      return shared;
+    }
+
+    public void release() throws IOException {
+      if (released) {
+        throw new IllegalStateException("Lock already released");
+      }
+      released = true;
+      unlock(this);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!released) {
+        release();
+      }
+    }
+  }
+
+  /**
+   * The OS lock of a stripe and the number of ranges holding it, no lock yet while
+   * the first of them is taking it
+   */
+  private static class Held {
+
+    FileLock lock;
+    int count = 1;
+  }
+
+  private final FileChannel channel;
+  private final long stripeSize;
+  private final ReentrantReadWriteLock[] locks;
+  // Held stripes per slot, guarded by the map
+  private final List<Map<Long, Held>> held;
+
+  public RangeLockManager(FileChannel channel) {
+    this(channel, 1024 * 1024, 64);
+  }
+
+  /**
+   * @param stripeSize the bytes per stripe, also the granularity of the OS locks
+   * @param slots the number of read-write locks the stripes map to
+   */
+  public RangeLockManager(FileChannel channel, long stripeSize, int slots) {
+    if (stripeSize < 1 || slots < 1) {
+      throw new IllegalArgumentException("stripeSize: " + stripeSize + ", slots: " + slots);
+    }
+    this.channel = channel;
+    this.stripeSize = stripeSize;
+    this.locks = new ReentrantReadWriteLock[slots];
+    this.held = new ArrayList<>(slots);
+    for (int i = 0; i < slots; i++) {
+      locks[i] = new ReentrantReadWriteLock();
+      held.add(new HashMap<Long, Held>());
+    }
+  }
+
+  /**
+   * Blocks until the range is locked
+   */
+  public RangeLock lock(long position, long size, boolean shared) throws IOException {
+    try {
+      return lock(position, size, shared, false, 0);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+
+  /**
+   * Returns null if the range could not be locked within the timeout
+   */
+  public RangeLock tryLock(long position, long size, boolean shared, long timeout, TimeUnit unit)
+      throws IOException, InterruptedException {
+    return lock(position, size, shared, true, System.nanoTime() + unit.toNanos(Math.max(0, timeout)));
+  }
+
+  /**
+   * @param deadline in System.nanoTime(), only if timed
+   */
+  private RangeLock lock(long position, long size, boolean shared, boolean timed, long deadline)
+      throws IOException, InterruptedException {
+    if (position < 0 || size < 1 || position + size < 0) {
+      throw new IllegalArgumentException("position: " + position + ", size: " + size);
+    }
+    RangeLock range = new RangeLock(position, size, shared, slots(position, size));
+    long first = position / stripeSize;
+    long stripe = first;
+    int locked = 0;
+    boolean success = false;
+    try {
+      for (; locked < range.slots.length; locked++) {
+        Lock lock = jvmLock(range.slots[locked], shared);
+        if (!timed) {
+          lock.lockInterruptibly();
+        } else if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          return null;
+        }
+      }
+      for (long last = lastStripe(position, size); stripe <= last; stripe++) {
+        if (!lockStripe(stripe, shared, timed, deadline)) {
+          return null;
+        }
+      }
+      success = true;
+      return range;
+    } finally {
+      if (!success) {
+        // Not locked after all, give back what was taken so far
+        try {
+          unlockStripes(first, stripe - 1);
+        } finally {
+          for (int i = locked - 1; i >= 0; i--) {
+            jvmLock(range.slots[i], shared).unlock();
+          }
+        }
+      }
+    }
+  }
+
+  private boolean lockStripe(long stripe, boolean shared, boolean timed, long deadline)
+      throws IOException, InterruptedException {
+    Map<Long, Held> stripes = held.get(slot(stripe));
+    Held current;
+    synchronized (stripes) {
+      while (true) {
+        current = stripes.get(stripe);
+        if (current == null) {
+          // This thread takes the OS lock, the others of the stripe wait for it
+          current = new Held();
+          stripes.put(stripe, current);
+          break;
+        }
+        if (current.lock != null) {
+          // Shared with another range, or taken again by the same thread
+          current.count++;
+          return true;
+        }
+        if (!timed) {
+          stripes.wait();
+        } else {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(stripes, remaining);
+        }
+      }
+    }
+    FileLock lock = null;
+    try {
+      if (!timed) {
+        lock = channel.lock(stripe * stripeSize, stripeSize, shared);
+      } else {
+        // Another process holds it, no timed FileChannel.lock() so poll
+        while ((lock = channel.tryLock(stripe * stripeSize, stripeSize, shared)) == null) {
+          if (System.nanoTime() - deadline >= 0) {
+            break;
+          }
+          Thread.sleep(1);
+        }
+      }
+    } finally {
+      synchronized (stripes) {
+        if (lock == null) {
+          // Failed or timed out, the next waiting thread tries itself
+          stripes.remove(stripe);
+        } else {
+          current.lock = lock;
+        }
+        stripes.notifyAll();
+      }
+    }
+    return lock != null;
+  }
+
+  private void unlock(RangeLock range) throws IOException {
+    try {
+      unlockStripes(range.position / stripeSize, lastStripe(range.position, range.size));
+    } finally {
+      for (int i = range.slots.length - 1; i >= 0; i--) {
+        jvmLock(range.slots[i], range.shared).unlock();
+      }
+    }
+  }
+
+  private void unlockStripes(long first, long last) throws IOException {
+    IOException failure = null;
+    for (long stripe = first; stripe <= last; stripe++) {
+      Map<Long, Held> stripes = held.get(slot(stripe));
+      synchronized (stripes) {
+        Held current = stripes.get(stripe);
+        if (--current.count == 0) {
+          stripes.remove(stripe);
+          try {
+            current.lock.release();
+          } catch (IOException e) {
+            failure = e;
+          }
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private Lock jvmLock(int slot, boolean shared) {
+    return shared ? locks[slot].readLock() : locks[slot].writeLock();
+  }
+
+  /**
+   * Returns the slots of the stripes in the range, ascending and distinct
+   */
+  private int[] slots(long position, long size) {
+    long first = position / stripeSize;
+    long count = lastStripe(position, size) - first + 1;
+    int[] slots = new int[(int) Math.min(count, locks.length)];
+    if (count >= locks.length) {
+      for (int i = 0; i < slots.length; i++) {
+        slots[i] = i;
+      }
+      return slots;
+    }
+    // Consecutive stripes map to consecutive slots, wrapping around at most once
+    int start = slot(first);
+    int index = 0;
+    for (int slot = start; slot < locks.length && index < count; slot++) {
+      slots[index++] = slot;
+    }
+    for (int slot = 0; index < count; slot++) {
+      slots[index++] = slot;
+    }
+    Arrays.sort(slots);
+    return slots;
+  }
+
+  private long lastStripe(long position, long size) {
+    return (position + size - 1) / stripeSize;
+  }
+
+  private int slot(long stripe) {
+    return (int) (stripe % locks.length);
+  }
+}
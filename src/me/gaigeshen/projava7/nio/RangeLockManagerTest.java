@@ -0,0 +1,301 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class RangeLockManagerTest {
+
+  @Test
+  public void sharedAndExclusive() throws Exception {
+
+    Path path = Files.createTempFile("ranges", ".bin");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final RangeLockManager manager = new RangeLockManager(channel, 4096, 8);
+
+      RangeLockManager.RangeLock lock = manager.lock(0, 100, false);
+      try {
+        // Another thread can not get into the stripe
+        assertNull(tryLockElsewhere(executor, manager, 50, 10, true));
+        // But into another one
+        assertTrue(tryLockElsewhere(executor, manager, 4096, 10, false));
+      } finally {
+        lock.release();
+      }
+      lock = manager.lock(0, 8192, true);
+      try {
+        assertTrue(tryLockElsewhere(executor, manager, 100, 10, true));
+        assertNull(tryLockElsewhere(executor, manager, 5000, 10, false));
+      } finally {
+        lock.release();
+      }
+      // Stripes mapping to the same slots, the locks are taken in order
+      try (RangeLockManager.RangeLock wide = manager.lock(3 * 4096, 20 * 4096, false)) {
+        assertEquals(20 * 4096, wide.size());
+        assertNull(tryLockElsewhere(executor, manager, 100, 10, true));
+      }
+      assertTrue(tryLockElsewhere(executor, manager, 100, 10, false));
+    } finally {
+      executor.shutdown();
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void osLockHeld() throws Exception {
+
+    Path path = Files.createTempFile("ranges", ".bin");
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel other = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      RangeLockManager manager = new RangeLockManager(channel, 4096, 8);
+      RangeLockManager.RangeLock range = manager.lock(10, 10, false);
+      try {
+        try {
+          other.tryLock(0, 4096, false);
+          throw new AssertionError();
+        } catch (OverlappingFileLockException e) {
+          // The stripe is locked at the OS level, another process would wait
+        }
+        // Two shared ranges of one stripe share its OS lock
+        try (RangeLockManager.RangeLock a = manager.lock(5000, 10, true);
+            RangeLockManager.RangeLock b = manager.lock(5010, 10, true)) {
+          assertTrue(a.isShared() && b.isShared());
+        }
+      } finally {
+        range.release();
+      }
+      FileLock lock = other.tryLock(0, 8192, false);
+      assertNotNull(lock);
+      lock.release();
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Another process holds a stripe, a thread waits for it without holding up the other
+   * stripes of its slot
+   */
+  @Test
+  public void otherProcessHoldsStripe() throws Exception {
+
+    Path path = Files.createTempFile("ranges", ".bin");
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    // Locks and releases on its own thread
+    ExecutorService owner = Executors.newSingleThreadExecutor();
+    Process holder = null;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final RangeLockManager manager = new RangeLockManager(channel, 4096, 8);
+      // Stripe 8 is in the same slot as stripe 0
+      final RangeLockManager.RangeLock held = owner.submit(new Callable<RangeLockManager.RangeLock>() {
+        @Override
+        public RangeLockManager.RangeLock call() throws Exception {
+          return manager.lock(8 * 4096, 10, true);
+        }
+      }).get();
+
+      holder = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-cp",
+          System.getProperty("java.class.path"), LockHolder.class.getName(), path.toString()).start();
+      BufferedReader output = new BufferedReader(new InputStreamReader(holder.getInputStream()));
+      assertEquals("locked", output.readLine());
+
+      Future<Boolean> waiting = executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          manager.lock(0, 10, true).release();
+          return true;
+        }
+      });
+      Thread.sleep(100);
+      assertFalse(waiting.isDone());
+      // Same slot, other stripes, neither locking nor unlocking waits for the OS lock
+      assertTrue(tryLockElsewhere(executor, manager, 16 * 4096, 10, true));
+      owner.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          held.release();
+          return null;
+        }
+      }).get(1, TimeUnit.SECONDS);
+
+      holder.getOutputStream().close();
+      assertEquals(0, holder.waitFor());
+      assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    } finally {
+      if (holder != null) {
+        holder.destroy();
+      }
+      owner.shutdown();
+      executor.shutdown();
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Holds an exclusive OS lock on the first 4096 bytes of the file until its input ends
+   */
+  public static class LockHolder {
+
+    public static void main(String[] args) throws Exception {
+      try (FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.WRITE)) {
+        FileLock lock = channel.lock(0, 4096, false);
+        System.out.println("locked");
+        System.out.flush();
+        while (System.in.read() != -1) {
+        }
+        lock.release();
+      }
+    }
+  }
+
+  /**
+   * Threads updating 16 KB of their own region, then of one region, against one lock
+   * for the file. Plain writes to one file are serialized by the kernel anyway, ranges
+   * pay off once the lock is held for more than a write.
+   */
+  @Test
+  public void contention() throws Exception {
+
+    Path path = Files.createTempFile("ranges", ".bin");
+    final int threads = 8;
+    final int updates = 5000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final RangeLockManager manager = new RangeLockManager(channel, 64 * 1024, 64);
+      final ReentrantLock fileLock = new ReentrantLock();
+
+      for (int round = 0; round < 2; round++) {
+        long disjoint = run(executor, threads, new Update() {
+          @Override
+          public void update(int thread, ByteBuffer buffer) throws Exception {
+            RangeLockManager.RangeLock lock = manager.lock(thread * 64 * 1024, 16 * 1024, false);
+            try {
+              readModifyWrite(channel, buffer, thread * 64 * 1024);
+            } finally {
+              lock.release();
+            }
+          }
+        }, updates);
+        long same = run(executor, threads, new Update() {
+          @Override
+          public void update(int thread, ByteBuffer buffer) throws Exception {
+            RangeLockManager.RangeLock lock = manager.lock(0, 16 * 1024, false);
+            try {
+              readModifyWrite(channel, buffer, 0);
+            } finally {
+              lock.release();
+            }
+          }
+        }, updates);
+        long wholeFile = run(executor, threads, new Update() {
+          @Override
+          public void update(int thread, ByteBuffer buffer) throws Exception {
+            // Like lockFile(): everybody waits for one lock on the whole file
+            fileLock.lock();
+            try {
+              FileLock lock = channel.lock();
+              try {
+                readModifyWrite(channel, buffer, thread * 64 * 1024);
+              } finally {
+                lock.release();
+              }
+            } finally {
+              fileLock.unlock();
+            }
+          }
+        }, updates);
+        System.out.println("disjoint ranges " + disjoint + " updates/s, same range " + same
+            + " updates/s, whole file " + wholeFile + " updates/s");
+      }
+    } finally {
+      executor.shutdown();
+      Files.delete(path);
+    }
+  }
+
+  private static void readModifyWrite(FileChannel channel, ByteBuffer buffer, long position) throws Exception {
+    channel.read(buffer, position);
+    CRC32 crc = new CRC32();
+    buffer.flip();
+    crc.update(buffer);
+    buffer.clear();
+    buffer.putLong(0, crc.getValue());
+    channel.write(buffer, position);
+  }
+
+  private interface Update {
+
+    void update(int thread, ByteBuffer buffer) throws Exception;
+  }
+
+  private static long run(ExecutorService executor, int threads, final Update update, final int updates)
+      throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    Future<?>[] futures = new Future<?>[threads];
+    for (int i = 0; i < threads; i++) {
+      final int thread = i;
+      futures[i] = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          ByteBuffer buffer = ByteBuffer.allocateDirect(16 * 1024);
+          start.await();
+          for (int j = 0; j < updates; j++) {
+            buffer.clear();
+            update.update(thread, buffer);
+          }
+          return null;
+        }
+      });
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    return threads * updates * 1000000000L / (System.nanoTime() - begin);
+  }
+
+  private static Boolean tryLockElsewhere(ExecutorService executor, final RangeLockManager manager,
+      final long position, final long size, final boolean shared) throws Exception {
+    return executor.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        RangeLockManager.RangeLock lock = manager.tryLock(position, size, shared, 50, TimeUnit.MILLISECONDS);
+        if (lock == null) {
+          return null;
+        }
+        lock.release();
+        return true;
+      }
+    }).get();
+  }
+}
@@ -0,0 +1,270 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One worker selector and its thread. Accepted channels are handed over by the
+ * acceptor through a queue, the selector is woken up to register them.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+class Reactor implements Runnable {
+
+  private final Selector selector;
+  private final ConnectionHandler handler;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger connections = new AtomicInteger();
+  private PooledBuffer pooled;
+  private final TimingWheel wheel = new TimingWheel(100, TimeUnit.MILLISECONDS, 512, System.nanoTime());
+  private long now = System.nanoTime();
+  private final ReactorMetrics metrics = new ReactorMetrics();
+  // Idle timeouts in nanoseconds, 0 if disabled
+  private long readTimeout;
+  private long writeTimeout;
+  private long allTimeout;
+  private volatile Thread thread;
+  private volatile boolean running = true;
+
+  Reactor(ConnectionHandler handler) throws IOException {
+    this.selector = Selector.open();
+    this.handler = handler;
+  }
+
+  int connections() {
+    return connections.get();
+  }
+
+  /**
+   * Must be called before the reactor thread starts
+   */
+  void setIdleTimeouts(long readTimeout, long writeTimeout, long allTimeout) {
+    this.readTimeout = readTimeout;
+    this.writeTimeout = writeTimeout;
+    this.allTimeout = allTimeout;
+  }
+
+  ReactorMetrics metrics() {
+    return metrics;
+  }
+
+  /**
+   * Returns the System.nanoTime() taken after the last select
+   */
+  long now() {
+    return now;
+  }
+
+  /**
+   * Can be called from any thread
+   */
+  void register(final SocketChannel socket) {
+    connections.incrementAndGet();
+    execute(new Runnable() {
+      @Override
+      public void run() {
+        Connection connection = new Connection(socket, Reactor.this);
+        try {
+          connection.register(socket.register(selector, SelectionKey.OP_READ, connection));
+          connection.lastRead = now;
+          connection.lastWrite = now;
+          scheduleIdle(connection);
+          handler.opened(connection);
+        } catch (IOException | RuntimeException e) {
+          close(connection);
+        }
+      }
+    });
+  }
+
+  /**
+   * Run the task on the reactor thread
+   */
+  void execute(Runnable task) {
+    if (Thread.currentThread() == thread) {
+      task.run();
+      return;
+    }
+    tasks.add(task);
+    selector.wakeup();
+  }
+
+  void close(final Connection connection) {
+    if (Thread.currentThread() != thread) {
+      execute(new Runnable() {
+        @Override
+        public void run() {
+          close(connection);
+        }
+      });
+      return;
+    }
+    if (!connection.markClosed()) {
+      return;
+    }
+    connections.decrementAndGet();
+    wheel.cancel(connection.idleTimeout);
+    try {
+      connection.channel().close();
+    } catch (IOException e) {
+      // Ignore
+    }
+    try {
+      handler.closed(connection);
+    } catch (RuntimeException e) {
+      // Closed anyway
+    }
+  }
+
+  void shutdown() {
+    running = false;
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    thread = Thread.currentThread();
+    // The read buffer is shared by all connections of this reactor
+    pooled = BufferPool.shared().acquire(16 * 1024);
+    try {
+      while (running) {
+        // Wake up for the next tick of the wheel if any connection has a deadline
+        long timeout = wheel.nextTickMillis(now);
+        if (timeout > 0) {
+          selector.select(timeout);
+        } else {
+          selector.select();
+        }
+        now = System.nanoTime();
+        metrics.selects.getAndIncrement();
+        metrics.keysPerSelect.record(selector.selectedKeys().size());
+        runTasks();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          Connection connection = (Connection) key.attachment();
+          try {
+            if (key.isReadable()) {
+              long start = System.nanoTime();
+              read(connection);
+              metrics.readNanos.record(System.nanoTime() - start);
+            }
+            if (key.isValid() && key.isWritable()) {
+              long start = System.nanoTime();
+              connection.flush();
+              metrics.writeNanos.record(System.nanoTime() - start);
+            }
+          } catch (IOException | RuntimeException e) {
+            // A failing handler costs its connection, not the reactor
+            close(connection);
+          }
+        }
+        wheel.advance(now);
+      }
+    } catch (IOException e) {
+      // To the uncaught exception handler of the thread, once the connections are closed
+      throw new UncheckedIOException("Reactor stopped", e);
+    } finally {
+      runTasks();
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof Connection) {
+          close((Connection) key.attachment());
+        }
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        // Ignore
+      }
+      pooled.release();
+    }
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Called when the idle timeout of the connection expired, notifies the handler
+   * about every deadline passed and schedules the next one
+   */
+  void idle(Connection connection, long now) {
+    try {
+      if (readTimeout > 0 && Math.max(connection.lastRead, connection.readNotified) + readTimeout <= now) {
+        connection.readNotified = now;
+        handler.idle(connection, ConnectionHandler.IdleState.READER_IDLE);
+      }
+      if (connection.isOpen() && writeTimeout > 0 && connection.hasPendingWrites()
+          && Math.max(connection.lastWrite, connection.writeNotified) + writeTimeout <= now) {
+        connection.writeNotified = now;
+        handler.idle(connection, ConnectionHandler.IdleState.WRITER_IDLE);
+      }
+      if (connection.isOpen() && allTimeout > 0 && Math.max(Math.max(connection.lastRead,
+          connection.lastWrite), connection.allNotified) + allTimeout <= now) {
+        connection.allNotified = now;
+        handler.idle(connection, ConnectionHandler.IdleState.ALL_IDLE);
+      }
+    } catch (IOException | RuntimeException e) {
+      close(connection);
+    }
+    if (connection.isOpen()) {
+      scheduleIdle(connection);
+    }
+  }
+
+  /**
+   * Schedule the idle timeout of the connection for its earliest deadline, O(1)
+   */
+  void scheduleIdle(Connection connection) {
+    long deadline = Long.MAX_VALUE;
+    if (readTimeout > 0) {
+      deadline = Math.max(connection.lastRead, connection.readNotified) + readTimeout;
+    }
+    if (writeTimeout > 0 && connection.hasPendingWrites()) {
+      deadline = Math.min(deadline, Math.max(connection.lastWrite, connection.writeNotified) + writeTimeout);
+    }
+    if (allTimeout > 0) {
+      deadline = Math.min(deadline, Math.max(Math.max(connection.lastRead, connection.lastWrite),
+          connection.allNotified) + allTimeout);
+    }
+    if (deadline == Long.MAX_VALUE) {
+      wheel.cancel(connection.idleTimeout);
+    } else {
+      wheel.schedule(connection.idleTimeout, deadline);
+    }
+  }
+
+  private void read(Connection connection) throws IOException {
+    ByteBuffer buffer = pooled.buffer();
+    buffer.clear();
+    int readed = connection.channel().read(buffer);
+    if (readed == -1) {
+      close(connection);
+      return;
+    }
+    if (readed > 0) {
+      metrics.bytesIn.getAndAdd(readed);
+      // Only a timestamp, the timeout is moved lazily when it expires
+      connection.lastRead = now;
+      buffer.flip();
+      handler.read(connection, buffer);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package me.gaigeshen.projava7.nio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and histograms of one reactor, written by the reactor thread and read
+ * through {@link ServerMetrics}
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+class ReactorMetrics {
+
+  final AtomicLong selects = new AtomicLong();
+  final AtomicLong bytesIn = new AtomicLong();
+  final AtomicLong bytesOut = new AtomicLong();
+  final Histogram keysPerSelect = new Histogram();
+  final Histogram readNanos = new Histogram();
+  final Histogram writeNanos = new Histogram();
+  final Histogram queueDepth = new Histogram();
+
+  void reset() {
+    selects.set(0);
+    bytesIn.set(0);
+    bytesOut.set(0);
+    keysPerSelect.reset();
+    readNanos.reset();
+    writeNanos.reset();
+    queueDepth.reset();
+  }
+}
@@ -0,0 +1,197 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+
+/**
+ * Records of a fixed header and a payload, moved with gathering writes and scattering
+ * reads so neither is copied into a combined buffer. The header is the payload length,
+ * a type and an id, all big-endian:
+ *
+ * <pre>
+ * +--------+--------+----------------+-----------------+
+ * | length |  type  |       id       |     payload     |
+ * | 4 bytes| 4 bytes|     8 bytes    |  length bytes   |
+ * +--------+--------+----------------+-----------------+
+ * </pre>
+ *
+ * Works with any channel that scatters and gathers, FileChannel and SocketChannel alike,
+ * blocking or not.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public final class RecordCodec {
+
+  public static final int HEADER = 16;
+
+  private RecordCodec() {
+  }
+
+  /**
+   * Collects records and writes the headers and payloads of all of them with gathering
+   * writes, up to 512 records per call
+   */
+  public static class Writer {
+
+    private static final int MAX_GATHER = 1024;
+
+    private final ByteBuffer headers;
+    private final ByteBuffer[] buffers;
+    private int count;
+    private int first;
+
+    /**
+     * @param capacity the number of records collected before a flush is needed
+     */
+    public Writer(int capacity) {
+      this.headers = ByteBuffer.allocateDirect(HEADER * capacity);
+      this.buffers = new ByteBuffer[capacity * 2];
+    }
+
+    /**
+     * Adds a record, the payload is not copied and must not change until it is flushed
+     *
+     * @return false if the writer is full
+     */
+    public boolean add(int type, long id, ByteBuffer payload) {
+      if (count == buffers.length) {
+        return false;
+      }
+      ByteBuffer header = headers.slice();
+      header.limit(HEADER);
+      header.putInt(payload.remaining()).putInt(type).putLong(id).flip();
+      headers.position(headers.position() + HEADER);
+      buffers[count++] = header;
+      buffers[count++] = payload;
+      return true;
+    }
+
+    /**
+     * Writes what was added, on a non-blocking channel possibly only a part of it
+     *
+     * @return true once everything is written and the writer is empty again
+     */
+    public boolean flush(GatheringByteChannel channel) throws IOException {
+      while (first < count) {
+        long written = channel.write(buffers, first, Math.min(MAX_GATHER, count - first));
+        while (first < count && !buffers[first].hasRemaining()) {
+          buffers[first++] = null;
+        }
+        if (written == 0 && first < count) {
+          return false;
+        }
+      }
+      count = 0;
+      first = 0;
+      headers.clear();
+      return true;
+    }
+
+    public boolean isEmpty() {
+      return count == 0;
+    }
+  }
+
+  /**
+   * Reads records, the header of a record is scattered together with whatever follows it
+   * into the body buffer, the payload is handed out as a view of the body. Only a payload
+   * cut off at the end of the body is moved to its front before the next read.
+   */
+  public static class Reader {
+
+    private final ByteBuffer header = ByteBuffer.allocateDirect(HEADER);
+    private final ByteBuffer body;
+    private final ByteBuffer[] scatter;
+    private final int maxPayload;
+    private boolean headerComplete;
+    private int length;
+    private int type;
+    private long id;
+    private ByteBuffer payload;
+
+    /**
+     * @param maxPayload the longest payload accepted, the body buffer is at least that
+     */
+    public Reader(int maxPayload) {
+      this.maxPayload = maxPayload;
+      this.body = ByteBuffer.allocateDirect(Math.max(maxPayload, 64 * 1024));
+      this.body.limit(0);
+      this.scatter = new ByteBuffer[] { header, body };
+    }
+
+    /**
+     * Reads the next record, which is then available through {@link #type()}, {@link #id()}
+     * and {@link #payload()} until the next call
+     *
+     * @return false at the end of the stream, or if a non-blocking channel has no
+     *         complete record yet
+     * @throws EOFException if the stream ends inside a record
+     */
+    public boolean read(ScatteringByteChannel channel) throws IOException {
+      payload = null;
+      if (!headerComplete) {
+        // Leftover bytes of the last read first
+        while (header.hasRemaining() && body.hasRemaining()) {
+          header.put(body.get());
+        }
+        while (header.hasRemaining()) {
+          body.clear();
+          long readed = channel.read(scatter);
+          body.flip();
+          if (readed == -1) {
+            if (header.position() == 0) {
+              return false;
+            }
+            throw new EOFException("Stream ends inside a header");
+          }
+          if (readed == 0) {
+            return false;
+          }
+        }
+        length = header.getInt(0);
+        if (length < 0 || length > maxPayload) {
+          throw new IOException("Invalid payload length: " + length);
+        }
+        type = header.getInt(4);
+        id = header.getLong(8);
+        header.clear();
+        headerComplete = true;
+      }
+      while (body.remaining() < length) {
+        body.compact();
+        int readed = channel.read(body);
+        body.flip();
+        if (readed == -1) {
+          throw new EOFException("Stream ends inside a payload");
+        }
+        if (readed == 0) {
+          return false;
+        }
+      }
+      payload = body.slice();
+      payload.limit(length);
+      body.position(body.position() + length);
+      headerComplete = false;
+      return true;
+    }
+
+    public int type() {
+      return type;
+    }
+
+    public long id() {
+      return id;
+    }
+
+    /**
+     * Returns the payload of the last record, a view of the body buffer
+     */
+    public ByteBuffer payload() {
+      return payload;
+    }
+  }
+}
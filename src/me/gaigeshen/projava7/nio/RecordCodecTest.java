@@ -0,0 +1,252 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class RecordCodecTest {
+
+  /**
+   * Counts the read and write calls reaching the channel, one system call each
+   */
+  static class CountingChannel implements ScatteringByteChannel, GatheringByteChannel {
+
+    final FileChannel channel;
+    long calls;
+
+    CountingChannel(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      calls++;
+      return channel.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+      calls++;
+      return channel.read(dsts, offset, length);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts) throws IOException {
+      return read(dsts, 0, dsts.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      calls++;
+      return channel.write(src);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      calls++;
+      return channel.write(srcs, offset, length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  @Test
+  public void fileChannel() throws Exception {
+
+    Path path = Files.createTempFile("records", ".bin");
+    try {
+      Random random = new Random(1);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        RecordCodec.Writer writer = new RecordCodec.Writer(16);
+        for (int i = 0; i < 1000; i++) {
+          ByteBuffer payload = payload(random, i);
+          if (!writer.add(i % 7, i, payload)) {
+            assertTrue(writer.flush(channel));
+            writer.add(i % 7, i, payload);
+          }
+        }
+        assertTrue(writer.flush(channel));
+        assertTrue(writer.isEmpty());
+      }
+      random = new Random(1);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        RecordCodec.Reader reader = new RecordCodec.Reader(100000);
+        for (int i = 0; i < 1000; i++) {
+          assertTrue(reader.read(channel));
+          assertEquals(i % 7, reader.type());
+          assertEquals(i, reader.id());
+          assertEquals(payload(random, i), reader.payload());
+        }
+        assertFalse(reader.read(channel));
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void socketChannel() throws Exception {
+
+    try (ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress("127.0.0.1", 0));
+      final SocketChannel client = SocketChannel.open(server.getLocalAddress());
+      final AtomicReference<IOException> failure = new AtomicReference<>();
+      Thread writerThread = new Thread() {
+        @Override
+        public void run() {
+          Random random = new Random(2);
+          RecordCodec.Writer writer = new RecordCodec.Writer(8);
+          try (SocketChannel channel = client) {
+            for (int i = 0; i < 500; i++) {
+              writer.add(1, i, payload(random, i));
+              if (i % 8 == 7) {
+                writer.flush(channel);
+              }
+            }
+            writer.flush(channel);
+          } catch (IOException e) {
+            failure.set(e);
+          }
+        }
+      };
+      writerThread.start();
+      try (SocketChannel socket = server.accept()) {
+        Random random = new Random(2);
+        RecordCodec.Reader reader = new RecordCodec.Reader(100000);
+        for (int i = 0; i < 500; i++) {
+          assertTrue(reader.read(socket));
+          assertEquals(i, reader.id());
+          assertEquals(payload(random, i), reader.payload());
+        }
+        assertFalse(reader.read(socket));
+      } finally {
+        writerThread.join();
+        if (failure.get() != null) {
+          throw new AssertionError(failure.get());
+        }
+      }
+    }
+  }
+
+  /**
+   * Gathering and scattering against a copy into one buffer, and against a call for
+   * the header and one for the payload
+   */
+  @Test
+  public void benchmark() throws Exception {
+
+    Path path = Files.createTempFile("records", ".bin");
+    try {
+      int records = 200000;
+      ByteBuffer payload = ByteBuffer.allocateDirect(1000);
+      for (int round = 0; round < 2; round++) {
+        long start = System.nanoTime();
+        long calls;
+        try (CountingChannel channel = new CountingChannel(FileChannel.open(path, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))) {
+          RecordCodec.Writer writer = new RecordCodec.Writer(64);
+          for (int i = 0; i < records; i++) {
+            payload.clear();
+            if (!writer.add(0, i, payload.duplicate())) {
+              writer.flush(channel);
+              writer.add(0, i, payload.duplicate());
+            }
+          }
+          writer.flush(channel);
+          calls = channel.calls;
+        }
+        System.out.println("gathering write: " + (System.nanoTime() - start) / 1000000 + " ms, " + calls
+            + " calls");
+
+        start = System.nanoTime();
+        try (CountingChannel channel = new CountingChannel(FileChannel.open(path, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))) {
+          ByteBuffer combined = ByteBuffer.allocateDirect(RecordCodec.HEADER + 1000);
+          for (int i = 0; i < records; i++) {
+            payload.clear();
+            combined.clear();
+            combined.putInt(payload.remaining()).putInt(0).putLong(i).put(payload).flip();
+            channel.write(combined);
+          }
+          calls = channel.calls;
+        }
+        System.out.println("copy into one buffer: " + (System.nanoTime() - start) / 1000000 + " ms, " + calls
+            + " calls");
+
+        start = System.nanoTime();
+        try (CountingChannel channel = new CountingChannel(FileChannel.open(path, StandardOpenOption.READ))) {
+          RecordCodec.Reader reader = new RecordCodec.Reader(1000);
+          int count = 0;
+          while (reader.read(channel)) {
+            count++;
+          }
+          assertEquals(records, count);
+          calls = channel.calls;
+        }
+        System.out.println("scattering read: " + (System.nanoTime() - start) / 1000000 + " ms, " + calls
+            + " calls");
+
+        start = System.nanoTime();
+        try (CountingChannel channel = new CountingChannel(FileChannel.open(path, StandardOpenOption.READ))) {
+          ByteBuffer header = ByteBuffer.allocateDirect(RecordCodec.HEADER);
+          ByteBuffer body = ByteBuffer.allocateDirect(1000);
+          int count = 0;
+          while (channel.read(header) > 0) {
+            header.flip();
+            body.clear();
+            body.limit(header.getInt(0));
+            channel.read(body);
+            header.clear();
+            count++;
+          }
+          assertEquals(records, count);
+          calls = channel.calls;
+        }
+        System.out.println("header and payload reads: " + (System.nanoTime() - start) / 1000000 + " ms, " + calls
+            + " calls");
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  private static ByteBuffer payload(Random random, int i) {
+    byte[] bytes = new byte[i % 10 == 0 ? 70000 : random.nextInt(300)];
+    random.nextBytes(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+}
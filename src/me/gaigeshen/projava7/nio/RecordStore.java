@@ -0,0 +1,283 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * File of fixed size records addressed by their index, read and written through a
+ * page cache in one slab of direct memory. A record never crosses a page, its page is
+ * index / (pageSize / recordSize).
+ * <p>
+ * Pages are evicted with CLOCK: every access sets the reference bit of the page, the
+ * hand clears bits until it finds a page without one. An evicted dirty page is written
+ * back, {@link #flush()} writes all dirty pages in file order and forces them with one
+ * force() call. All methods are synchronized.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class RecordStore implements Closeable {
+
+  /**
+   * Page number to frame, open addressing without boxing
+   */
+  private static class PageTable {
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+
+    PageTable(int frames) {
+      int capacity = Integer.highestOneBit(Math.max(2, frames) * 2 - 1) * 2;
+      keys = new long[capacity];
+      values = new int[capacity];
+      mask = capacity - 1;
+      Arrays.fill(keys, -1);
+    }
+
+    int get(long page) {
+      for (int i = hash(page);; i = (i + 1) & mask) {
+        if (keys[i] == page) {
+          return values[i];
+        }
+        if (keys[i] == -1) {
+          return -1;
+        }
+      }
+    }
+
+    void put(long page, int frame) {
+      int i = hash(page);
+      while (keys[i] != -1 && keys[i] != page) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = page;
+      values[i] = frame;
+    }
+
+    void remove(long page) {
+      int i = hash(page);
+      while (keys[i] != page) {
+        if (keys[i] == -1) {
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      // Shift back the entries that probed past the removed one
+      for (int j = (i + 1) & mask; keys[j] != -1; j = (j + 1) & mask) {
+        int home = hash(keys[j]);
+        if (((j - home) & mask) >= ((j - i) & mask)) {
+          keys[i] = keys[j];
+          values[i] = values[j];
+          i = j;
+        }
+      }
+      keys[i] = -1;
+    }
+
+    private int hash(long page) {
+      long h = page * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+  }
+
+  private final FileChannel channel;
+  private final int recordSize;
+  private final int pageSize;
+  private final int recordsPerPage;
+  private final ByteBuffer[] frames;
+  private final long[] pages;
+  private final boolean[] referenced;
+  private final boolean[] dirty;
+  private final PageTable table;
+  private int hand;
+  private int used;
+  private long hits;
+  private long misses;
+  private long writeBacks;
+
+  /**
+   * @param cachePages the number of pages kept in memory
+   */
+  public RecordStore(Path path, int recordSize, int pageSize, int cachePages) throws IOException {
+    if (recordSize < 1 || pageSize < recordSize || cachePages < 1
+        || (long) pageSize * cachePages > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("recordSize: " + recordSize + ", pageSize: " + pageSize
+          + ", cachePages: " + cachePages);
+    }
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    this.recordSize = recordSize;
+    this.pageSize = pageSize;
+    this.recordsPerPage = pageSize / recordSize;
+    this.frames = new ByteBuffer[cachePages];
+    this.pages = new long[cachePages];
+    this.referenced = new boolean[cachePages];
+    this.dirty = new boolean[cachePages];
+    this.table = new PageTable(cachePages);
+    ByteBuffer slab = ByteBuffer.allocateDirect(pageSize * cachePages);
+    for (int i = 0; i < cachePages; i++) {
+      slab.limit((i + 1) * pageSize).position(i * pageSize);
+      frames[i] = slab.slice();
+    }
+    Arrays.fill(pages, -1);
+  }
+
+  public int recordSize() {
+    return recordSize;
+  }
+
+  /**
+   * Copies the record into the buffer, a record never written reads as zeros
+   */
+  public synchronized void read(long index, ByteBuffer dst) throws IOException {
+    if (dst.remaining() < recordSize) {
+      throw new IllegalArgumentException("Buffer too small: " + dst.remaining());
+    }
+    ByteBuffer frame = frames[frame(index)];
+    int offset = offset(index);
+    frame.limit(offset + recordSize).position(offset);
+    dst.put(frame);
+  }
+
+  /**
+   * Replaces the record with the next recordSize bytes of the buffer, on disk once the
+   * page is evicted or flushed
+   */
+  public synchronized void write(long index, ByteBuffer src) throws IOException {
+    if (src.remaining() < recordSize) {
+      throw new IllegalArgumentException("Buffer too small: " + src.remaining());
+    }
+    int f = frame(index);
+    ByteBuffer frame = frames[f];
+    int offset = offset(index);
+    frame.limit(offset + recordSize).position(offset);
+    ByteBuffer record = src.duplicate();
+    record.limit(record.position() + recordSize);
+    frame.put(record);
+    src.position(src.position() + recordSize);
+    dirty[f] = true;
+  }
+
+  /**
+   * Writes the dirty pages in file order and forces them to disk once
+   */
+  public synchronized void flush() throws IOException {
+    Integer[] order = new Integer[frames.length];
+    int count = 0;
+    for (int f = 0; f < frames.length; f++) {
+      if (dirty[f]) {
+        order[count++] = f;
+      }
+    }
+    if (count == 0) {
+      return;
+    }
+    Arrays.sort(order, 0, count, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Long.compare(pages[a], pages[b]);
+      }
+    });
+    for (int i = 0; i < count; i++) {
+      writeBack(order[i]);
+    }
+    channel.force(false);
+  }
+
+  private int frame(long index) throws IOException {
+    if (index < 0) {
+      throw new IndexOutOfBoundsException("index: " + index);
+    }
+    long page = index / recordsPerPage;
+    int f = table.get(page);
+    if (f >= 0) {
+      hits++;
+      referenced[f] = true;
+      return f;
+    }
+    misses++;
+    f = used < frames.length ? used++ : evict();
+    load(f, page);
+    table.put(page, f);
+    pages[f] = page;
+    referenced[f] = true;
+    return f;
+  }
+
+  private int evict() throws IOException {
+    while (true) {
+      int f = hand;
+      hand = (hand + 1) % frames.length;
+      if (referenced[f]) {
+        referenced[f] = false;
+        continue;
+      }
+      if (dirty[f]) {
+        writeBack(f);
+      }
+      table.remove(pages[f]);
+      pages[f] = -1;
+      return f;
+    }
+  }
+
+  private void load(int f, long page) throws IOException {
+    ByteBuffer frame = frames[f];
+    frame.clear();
+    long position = page * pageSize;
+    while (frame.hasRemaining()) {
+      if (channel.read(frame, position + frame.position()) == -1) {
+        // Beyond the end of the file
+        while (frame.hasRemaining()) {
+          frame.put((byte) 0);
+        }
+      }
+    }
+  }
+
+  private void writeBack(int f) throws IOException {
+    ByteBuffer frame = frames[f];
+    frame.clear();
+    long position = pages[f] * pageSize;
+    while (frame.hasRemaining()) {
+      channel.write(frame, position + frame.position());
+    }
+    dirty[f] = false;
+    writeBacks++;
+  }
+
+  private int offset(long index) {
+    return (int) (index % recordsPerPage) * recordSize;
+  }
+
+  synchronized long hits() {
+    return hits;
+  }
+
+  synchronized long misses() {
+    return misses;
+  }
+
+  synchronized long writeBacks() {
+    return writeBacks;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class RecordStoreTest {
+
+  @Test
+  public void readWriteWithEvictions() throws Exception {
+
+    Path path = Files.createTempFile("records", ".db");
+    try {
+      Map<Long, Long> expected = new HashMap<>();
+      Random random = new Random(1);
+      ByteBuffer buffer = ByteBuffer.allocate(16);
+      // 4 cached pages of 8 records for 10000 records
+      try (RecordStore store = new RecordStore(path, 16, 128, 4)) {
+        for (int i = 0; i < 20000; i++) {
+          long index = random.nextInt(10000);
+          if (random.nextBoolean()) {
+            buffer.clear();
+            buffer.putLong(index).putLong(i).flip();
+            store.write(index, buffer);
+            expected.put(index, (long) i);
+          } else {
+            buffer.clear();
+            store.read(index, buffer);
+            assertEquals(expected.containsKey(index) ? index : 0, buffer.getLong(0));
+            assertEquals(expected.containsKey(index) ? expected.get(index) : 0, buffer.getLong(8));
+          }
+        }
+        assertTrue(store.writeBacks() > 0);
+      }
+      try (RecordStore store = new RecordStore(path, 16, 128, 4)) {
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+          buffer.clear();
+          store.read(entry.getKey(), buffer);
+          assertEquals((long) entry.getKey(), buffer.getLong(0));
+          assertEquals((long) entry.getValue(), buffer.getLong(8));
+        }
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Random reads and writes of 64 byte records over a 64 MB file by cache size
+   */
+  @Test
+  public void benchmark() throws Exception {
+
+    Path path = Files.createTempFile("records", ".db");
+    try {
+      long records = 1024 * 1024;
+      for (int percent : new int[] { 10, 50, 100 }) {
+        int pages = (int) (records * 64 / 4096 * percent / 100);
+        try (RecordStore store = new RecordStore(path, 64, 4096, pages)) {
+          ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+          Random random = new Random(1);
+          for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 1000000; i++) {
+              buffer.clear();
+              store.read(random.nextInt((int) records), buffer);
+            }
+            long reads = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 1000000; i++) {
+              buffer.clear();
+              store.write(random.nextInt((int) records), buffer);
+            }
+            long writes = System.nanoTime() - start;
+            start = System.nanoTime();
+            store.flush();
+            long flush = System.nanoTime() - start;
+            System.out.println("cache " + percent + "%: read " + reads / 1000000 + " ns, write " + writes / 1000000
+                + " ns, flush " + flush / 1000000 + " ms, hit rate "
+                + store.hits() * 100 / (store.hits() + store.misses()) + "%");
+          }
+        }
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
@@ -89,7 +89,7 @@ class Search implements FileVisitor<Path> {
   private void search(Path file) throws IOException {
     Path name = file.getFileName();
     if (name != null && name.equals(searched)) {
-      System.out.println("Searched file was found: " + searched + " in " + file.toRealPath());
+      System.out.println("Searched file was found: " + searched + " in " + file);
       found = true;
     }
   }
@@ -131,7 +131,7 @@ class PathMatcherSearch implements FileVisitor<Path> {
   private void search(Path file) throws IOException {
     Path name = file.getFileName();
     if (name != null && matcher.matches(name)) {
-      System.out.println("Searched file was found: " + name + " in " + file.toRealPath());
+      System.out.println("Searched file was found: " + name + " in " + file);
     }
   }
 
@@ -8,6 +8,8 @@ import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.FileLock;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -33,14 +35,33 @@ public class SeekableByteChannelTest {
       ByteBuffer buffer = ByteBuffer.allocate(12);
       // Get encoding from system
       String encoding = System.getProperty("file.encoding");
+      // One decoder for the whole file, 12 bytes never decode to more than 12 chars
+      CharsetDecoder decoder = Charset.forName(encoding).newDecoder();
+      CharBuffer chars = CharBuffer.allocate(12);
       // Clears this buffer. The position is set to zero, the limit is set to the capacity, and the mark is discarded.
       buffer.clear();
       while (channel.read(buffer) > 0) {
         // Flips this buffer. The limit is set to the current position and then the position is set to zero. If the mark is defined then it is discarded.
         buffer.flip();
-        System.out.print(Charset.forName(encoding).decode(buffer));
-        buffer.clear();
+        CoderResult result = decoder.decode(buffer, chars, false);
+        if (result.isError()) {
+          result.throwException();
+        }
+        chars.flip();
+        System.out.print(chars);
+        chars.clear();
+        // Keeps the bytes of a character split by this read for the next one
+        buffer.compact();
+      }
+      // End of input, bytes left over now are a truncated character
+      buffer.flip();
+      CoderResult result = decoder.decode(buffer, chars, true);
+      if (result.isError()) {
+        result.throwException();
       }
+      decoder.flush(chars);
+      chars.flip();
+      System.out.print(chars);
     }
   }
   
@@ -147,7 +168,10 @@ public class SeekableByteChannelTest {
       ByteBuffer buffer = ByteBuffer.allocateDirect(4 * 1024);
       while (fromChannel.read(buffer) > 0) {
         buffer.flip();
-        toChannel.write(buffer);
+        // A write may be short too
+        while (buffer.hasRemaining()) {
+          toChannel.write(buffer);
+        }
         // For the next read
         buffer.clear();
       }
@@ -160,7 +184,13 @@ public class SeekableByteChannelTest {
     Path path = Paths.get("E:/workspace/pro-java7-nio/new.txt");
     try (FileChannel fromChannel = FileChannel.open(path, StandardOpenOption.READ);
         FileChannel toChannel = FileChannel.open(Paths.get("E:/workspace/pro-java7-nio/new_copy.txt"), EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
-      fromChannel.transferTo(0, fromChannel.size(), toChannel);
+      // One call transfers at most 2 GB on Linux, loop until everything is there
+      // (see FileCopier for big files)
+      long position = 0;
+      long size = fromChannel.size();
+      while (position < size) {
+        position += fromChannel.transferTo(position, size - position, toChannel);
+      }
     }
   }
   
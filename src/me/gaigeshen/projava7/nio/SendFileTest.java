@@ -0,0 +1,202 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class SendFileTest {
+
+  /**
+   * Sends the file for every byte received, after a "header" buffer
+   */
+  static class FileServerHandler extends EchoHandler {
+
+    private final Path path;
+
+    FileServerHandler(Path path) {
+      this.path = path;
+    }
+
+    @Override
+    public void read(Connection connection, ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        buffer.get();
+        connection.write(ByteBuffer.wrap("FILE".getBytes()));
+        connection.sendFile(FileRegion.of(path));
+      }
+    }
+  }
+
+  @Test
+  public void sendFile() throws Exception {
+
+    Path path = Files.createTempFile("sendfile", ".bin");
+    try {
+      byte[] content = new byte[3 * 1024 * 1024 + 17];
+      new Random(1).nextBytes(content);
+      Files.write(path, content);
+
+      try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+          1, MultiReactorServer.Balance.ROUND_ROBIN, new FileServerHandler(path))) {
+        server.start();
+        try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+          // Ask twice, the second region is queued behind the first one
+          socket.write(ByteBuffer.wrap(new byte[2]));
+          for (int i = 0; i < 2; i++) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            ByteBuffer received = ByteBuffer.allocate(content.length);
+            while (header.hasRemaining() && socket.read(header) != -1) {
+            }
+            while (received.hasRemaining() && socket.read(received) != -1) {
+            }
+            assertEquals("FILE", new String(header.array()));
+            assertArrayEquals(content, received.array());
+          }
+        }
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void truncatedFileIsClosed() throws Exception {
+
+    Path path = Files.createTempFile("sendfile", ".bin");
+    final FileChannel[] opened = new FileChannel[1];
+    try {
+      Files.write(path, new byte[1000]);
+      final Path file = path;
+      try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+          1, MultiReactorServer.Balance.ROUND_ROBIN, new EchoHandler() {
+            @Override
+            public void read(Connection connection, ByteBuffer buffer) throws IOException {
+              FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+              opened[0] = channel;
+              // Claims more than the file has
+              connection.sendFile(new FileRegion(channel, 0, 2000, true));
+            }
+          })) {
+        server.start();
+        try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+          socket.write(ByteBuffer.wrap(new byte[1]));
+          ByteBuffer buffer = ByteBuffer.allocate(2000);
+          while (socket.read(buffer) != -1) {
+          }
+          assertEquals(1000, buffer.position());
+        }
+      }
+      assertFalse(opened[0].isOpen());
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * A few MB by default, -Dsendfile.size=268435456 for a run long enough to compare
+   */
+  @Test
+  public void compareWithBufferedCopy() throws Exception {
+
+    long size = Long.getLong("sendfile.size", 4L * 1024 * 1024);
+    Path path = Files.createTempFile("sendfile", ".bin");
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      ByteBuffer chunk = ByteBuffer.allocateDirect(1024 * 1024);
+      for (long written = 0; written < size; written += chunk.capacity()) {
+        chunk.clear();
+        file.write(chunk);
+      }
+    }
+    size = Files.size(path);
+    try {
+      // Non-blocking server, transferTo resumed on OP_WRITE
+      try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+          1, MultiReactorServer.Balance.ROUND_ROBIN, new FileServerHandler(path))) {
+        server.start();
+        try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+          long start = System.nanoTime();
+          socket.write(ByteBuffer.wrap(new byte[1]));
+          drain(socket, size + 4);
+          report("sendFile (non-blocking)", size, start);
+        }
+      }
+      // Blocking sockets, transferTo against read/write through a heap buffer
+      for (final boolean zeroCopy : new boolean[] { true, false }) {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+          channel.bind(new InetSocketAddress("127.0.0.1", 0));
+          final Path file = path;
+          final ServerSocketChannel listening = channel;
+          Thread sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+              try (SocketChannel socket = listening.accept();
+                  FileChannel from = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (zeroCopy) {
+                  new FileRegion(from, 0, from.size(), false).transferTo(socket);
+                } else {
+                  ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                  while (from.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                      socket.write(buffer);
+                    }
+                    buffer.clear();
+                  }
+                }
+              } catch (IOException e) {
+                System.out.println("Send failed: " + e);
+              }
+            }
+          });
+          sender.start();
+          try (SocketChannel socket = SocketChannel.open(channel.getLocalAddress())) {
+            long start = System.nanoTime();
+            drain(socket, size);
+            report(zeroCopy ? "transferTo (blocking)" : "heap buffer copy (blocking)", size, start);
+          }
+          sender.join();
+        }
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  private static void drain(SocketChannel socket, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+    long received = 0;
+    while (received < size) {
+      buffer.clear();
+      int readed = socket.read(buffer);
+      if (readed == -1) {
+        break;
+      }
+      received += readed;
+    }
+    assertEquals(size, received);
+  }
+
+  private static void report(String name, long size, long start) {
+    long elapsed = System.nanoTime() - start;
+    System.out.println(name + ": " + size / 1024 / 1024 + " MB in " + elapsed / 1000000 + " ms, "
+        + size * 1000000000L / elapsed / 1024 / 1024 + " MB/s");
+  }
+}
@@ -0,0 +1,208 @@
+package me.gaigeshen.projava7.nio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the {@link MultiReactorServer} event loops. The reactors only bump
+ * counters and histograms, everything is summed up over the reactors when it is
+ * pulled, through the methods here or through JMX.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+
+  private final MultiReactorServer server;
+  private final ReactorMetrics[] reactors;
+  private final AtomicLong accepted;
+  private final Histogram acceptNanos;
+
+  ServerMetrics(MultiReactorServer server, ReactorMetrics[] reactors, AtomicLong accepted,
+      Histogram acceptNanos) {
+    this.server = server;
+    this.reactors = reactors;
+    this.accepted = accepted;
+    this.acceptNanos = acceptNanos;
+  }
+
+  /**
+   * Returns the number of select() wake-ups
+   */
+  public long selects() {
+    long total = 0;
+    for (ReactorMetrics reactor : reactors) {
+      total += reactor.selects.get();
+    }
+    return total;
+  }
+
+  public long bytesIn() {
+    long total = 0;
+    for (ReactorMetrics reactor : reactors) {
+      total += reactor.bytesIn.get();
+    }
+    return total;
+  }
+
+  public long bytesOut() {
+    long total = 0;
+    for (ReactorMetrics reactor : reactors) {
+      total += reactor.bytesOut.get();
+    }
+    return total;
+  }
+
+  /**
+   * Returns the selected keys per select() wake-up
+   */
+  public Histogram keysPerSelect() {
+    Histogram result = new Histogram();
+    for (ReactorMetrics reactor : reactors) {
+      result.add(reactor.keysPerSelect);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the nanoseconds spent accepting a connection and handing it to a reactor
+   */
+  public Histogram acceptNanos() {
+    Histogram result = new Histogram();
+    result.add(acceptNanos);
+    return result;
+  }
+
+  /**
+   * Returns the nanoseconds spent in a read, including the handler
+   */
+  public Histogram readNanos() {
+    Histogram result = new Histogram();
+    for (ReactorMetrics reactor : reactors) {
+      result.add(reactor.readNanos);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the nanoseconds spent flushing a write queue on OP_WRITE
+   */
+  public Histogram writeNanos() {
+    Histogram result = new Histogram();
+    for (ReactorMetrics reactor : reactors) {
+      result.add(reactor.writeNanos);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the bytes queued on a connection, recorded whenever its write queue grows
+   */
+  public Histogram queueDepth() {
+    Histogram result = new Histogram();
+    for (ReactorMetrics reactor : reactors) {
+      result.add(reactor.queueDepth);
+    }
+    return result;
+  }
+
+  @Override
+  public long getAccepted() {
+    return accepted.get();
+  }
+
+  @Override
+  public int getConnections() {
+    int total = 0;
+    for (int connections : server.connections()) {
+      total += connections;
+    }
+    return total;
+  }
+
+  @Override
+  public long getSelects() {
+    return selects();
+  }
+
+  @Override
+  public double getKeysPerSelectMean() {
+    return keysPerSelect().mean();
+  }
+
+  @Override
+  public long getBytesIn() {
+    return bytesIn();
+  }
+
+  @Override
+  public long getBytesOut() {
+    return bytesOut();
+  }
+
+  @Override
+  public long getAcceptP99Micros() {
+    return micros(acceptNanos.percentile(0.99));
+  }
+
+  @Override
+  public long getReadP50Micros() {
+    return micros(readNanos().percentile(0.5));
+  }
+
+  @Override
+  public long getReadP99Micros() {
+    return micros(readNanos().percentile(0.99));
+  }
+
+  @Override
+  public long getReadP999Micros() {
+    return micros(readNanos().percentile(0.999));
+  }
+
+  @Override
+  public long getWriteP50Micros() {
+    return micros(writeNanos().percentile(0.5));
+  }
+
+  @Override
+  public long getWriteP99Micros() {
+    return micros(writeNanos().percentile(0.99));
+  }
+
+  @Override
+  public long getWriteP999Micros() {
+    return micros(writeNanos().percentile(0.999));
+  }
+
+  @Override
+  public long getQueueDepthP99Bytes() {
+    return queueDepth().percentile(0.99);
+  }
+
+  @Override
+  public long getQueueDepthMaxBytes() {
+    return queueDepth().max();
+  }
+
+  @Override
+  public void reset() {
+    accepted.set(0);
+    acceptNanos.reset();
+    for (ReactorMetrics reactor : reactors) {
+      reactor.reset();
+    }
+  }
+
+  private static long micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+
+  @Override
+  public String toString() {
+    return "accepted=" + getAccepted() + ", connections=" + getConnections() + ", selects=" + selects()
+        + ", bytesIn=" + bytesIn() + ", bytesOut=" + bytesOut() + "\n  keysPerSelect: " + keysPerSelect()
+        + "\n  acceptNanos: " + acceptNanos + "\n  readNanos: " + readNanos()
+        + "\n  writeNanos: " + writeNanos() + "\n  queueDepth: " + queueDepth();
+  }
+}
@@ -0,0 +1,42 @@
+package me.gaigeshen.projava7.nio;
+
+/**
+ * JMX view of {@link ServerMetrics}, times are in microseconds
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public interface ServerMetricsMBean {
+
+  long getAccepted();
+
+  int getConnections();
+
+  long getSelects();
+
+  double getKeysPerSelectMean();
+
+  long getBytesIn();
+
+  long getBytesOut();
+
+  long getAcceptP99Micros();
+
+  long getReadP50Micros();
+
+  long getReadP99Micros();
+
+  long getReadP999Micros();
+
+  long getWriteP50Micros();
+
+  long getWriteP99Micros();
+
+  long getWriteP999Micros();
+
+  long getQueueDepthP99Bytes();
+
+  long getQueueDepthMaxBytes();
+
+  void reset();
+}
@@ -0,0 +1,99 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class ServerMetricsTest {
+
+  @Test
+  public void histogramPercentiles() throws Exception {
+
+    Histogram histogram = new Histogram();
+    for (long value = 1; value <= 1000000; value++) {
+      histogram.record(value);
+    }
+    assertEquals(1000000, histogram.count());
+    assertEquals(1000000, histogram.max());
+    assertEquals(500000.5, histogram.mean(), 0.01);
+    // Within 1/32 of the exact value
+    assertEquals(500000, histogram.percentile(0.5), 500000 / 32);
+    assertEquals(990000, histogram.percentile(0.99), 990000 / 32);
+    assertEquals(999000, histogram.percentile(0.999), 999000 / 32);
+    // Small values are exact
+    Histogram small = new Histogram();
+    small.record(3);
+    small.record(7);
+    assertEquals(3, small.percentile(0.5));
+    assertEquals(7, small.percentile(1.0));
+  }
+
+  @Test
+  public void eventLoopMetrics() throws Exception {
+
+    try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        2, MultiReactorServer.Balance.ROUND_ROBIN, new EchoHandler())) {
+      server.start();
+      server.registerMBean();
+
+      for (int i = 0; i < 10; i++) {
+        try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+          ByteBuffer buffer = ByteBuffer.allocate(1000);
+          for (int j = 0; j < 10; j++) {
+            buffer.clear();
+            socket.write(buffer);
+            buffer.clear();
+            while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+            }
+          }
+        }
+      }
+
+      ServerMetrics metrics = server.metrics();
+      assertEquals(10, metrics.getAccepted());
+      assertEquals(100000, metrics.bytesIn());
+      // Counted after the write returned, the client may have read the echo before that
+      long deadline = System.currentTimeMillis() + 5000;
+      while (metrics.bytesOut() < 100000 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(1);
+      }
+      assertEquals(100000, metrics.bytesOut());
+      assertTrue(metrics.selects() >= 100);
+      assertTrue(metrics.readNanos().count() >= 100);
+
+      // Same numbers through JMX
+      MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName("me.gaigeshen.projava7.nio:type=MultiReactorServer,port="
+          + server.getLocalAddress().getPort());
+      assertEquals(100000L, mbeans.getAttribute(name, "BytesIn"));
+
+      System.out.println(metrics);
+    }
+  }
+
+  @Test
+  public void recordingOverhead() throws Exception {
+
+    Histogram histogram = new Histogram();
+    long start = System.nanoTime();
+    for (int i = 0; i < 10000000; i++) {
+      histogram.record(i & 0xffff);
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.println(elapsed / 10000000.0 + " ns per record");
+  }
+}
@@ -10,10 +10,8 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -137,14 +135,16 @@ public class SocketsTest {
       System.out.println("Incoming connection from: " + socket.getRemoteAddress());
       
       // Echo server mode
-      ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
-      while (socket.read(buffer) != -1) {
-        buffer.flip();
-        socket.write(buffer);
-        if (buffer.hasRemaining()) {
-          buffer.compact();
-        } else {
-          buffer.clear();
+      try (PooledBuffer pooled = BufferPool.shared().acquire(1024)) {
+        ByteBuffer buffer = pooled.buffer();
+        while (socket.read(buffer) != -1) {
+          buffer.flip();
+          socket.write(buffer);
+          if (buffer.hasRemaining()) {
+            buffer.compact();
+          } else {
+            buffer.clear();
+          }
         }
       }
       
@@ -223,8 +223,9 @@ public class SocketsTest {
   @Test
   public void nonBlockingServer() throws Exception {
     
-    Map<SocketChannel, List<byte[]>> keepDataTrack = new HashMap<>();
-    ByteBuffer buffer = ByteBuffer.allocate(2 * 1024);
+    Map<SocketChannel, WriteQueue> keepDataTrack = new HashMap<>();
+    // Buffers come from the pool and are queued as they are, nothing is copied
+    BufferPool pool = BufferPool.shared();
     
     try (Selector selector = Selector.open();
         ServerSocketChannel channel = ServerSocketChannel.open()) {
@@ -264,36 +265,47 @@ public class SocketsTest {
             socket.configureBlocking(false);
             System.out.println("Incoming connection from: " + socket.getRemoteAddress());
             socket.write(ByteBuffer.wrap("Hello!\n".getBytes()));
-            keepDataTrack.put(socket, new ArrayList<>());
+            keepDataTrack.put(socket, new WriteQueue());
             // Register channel with selector for further IO
             socket.register(selector, SelectionKey.OP_READ);
           } else if (key.isReadable()) {
             SocketChannel socket = (SocketChannel) key.channel();
-            buffer.clear();
-            int readed = socket.read(buffer);
+            PooledBuffer buffer = pool.acquire(2 * 1024);
+            int readed = socket.read(buffer.buffer());
             if (readed == -1) {
-              keepDataTrack.remove(socket);
+              buffer.release();
+              keepDataTrack.remove(socket).clear();
               System.out.println("Connection closed by: " + socket.getRemoteAddress());
               socket.close();
               key.cancel();
             } else {
-              byte[] data = new byte[readed];
-              System.arraycopy(buffer.array(), 0, data, 0, readed);
-              System.out.println(new String(data) + " from " + socket.getRemoteAddress());
-              List<byte[]> channelData = keepDataTrack.get(socket);
-              channelData.add(data);
-              key.interestOps(SelectionKey.OP_WRITE);
+              buffer.buffer().flip();
+              System.out.println(readed + " bytes from " + socket.getRemoteAddress());
+              WriteQueue channelData = keepDataTrack.get(socket);
+              if (!channelData.offer(buffer)) {
+                buffer.release();
+                System.out.println("Too much data queued for: " + socket.getRemoteAddress());
+                keepDataTrack.remove(socket).clear();
+                socket.close();
+                continue;
+              }
+              // Stop reading from this peer if it does not read what we write
+              if (channelData.isAboveHighWaterMark()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+              } else {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+              }
             }
           } else if (key.isWritable()) {
             SocketChannel socket = (SocketChannel) key.channel();
-            List<byte[]> channelData = keepDataTrack.get(socket);
-            Iterator<byte[]> iterator = channelData.iterator();
-            while (iterator.hasNext()) {
-              byte[] data = iterator.next();
-              iterator.remove();
-              socket.write(ByteBuffer.wrap(data));
+            WriteQueue channelData = keepDataTrack.get(socket);
+            // Gathering write, a partial write keeps the rest of the data queued
+            channelData.flush(socket);
+            if (channelData.isEmpty()) {
+              key.interestOps(SelectionKey.OP_READ);
+            } else if (channelData.isBelowLowWaterMark()) {
+              key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
             }
-            key.interestOps(SelectionKey.OP_READ);
           }
         }
       }
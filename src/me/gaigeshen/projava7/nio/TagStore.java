@@ -0,0 +1,469 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Key/value tags of files, kept in one user-defined attribute per file, so all tags of a
+ * file are read and written with one call. The values are String, Long, Boolean or
+ * byte[], encoded as
+ *
+ * <pre>
+ * version(1) count(varint) { keyLength(2) key(UTF-8) type(1) value }
+ * value: string length(2) bytes | long zigzag varint | boolean 1 byte | bytes length(2) bytes
+ * </pre>
+ *
+ * into a pooled buffer, without an intermediate array. The attribute is at most 64 KB.
+ * <p>
+ * With an index file the store also keeps key and value to paths in memory, loaded from
+ * the index file when opened and written back on close, so the files with a tag are found
+ * without reading the attributes of every file. Only tags written through the store are
+ * indexed, {@link #reindex(Path)} reads them again from a tree. byte[] values are not
+ * indexed.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class TagStore implements Closeable {
+
+  private static final String ATTRIBUTE = "tags";
+  private static final int MAX_SIZE = 64 * 1024;
+  private static final byte VERSION = 1;
+  private static final byte STRING = 1, LONG = 2, BOOLEAN = 3, BYTES = 4;
+  private static final int INDEX_MAGIC = 0x54414753;
+
+  private static final ThreadLocal<CharsetEncoder> ENCODER = new ThreadLocal<CharsetEncoder>() {
+    @Override
+    protected CharsetEncoder initialValue() {
+      return StandardCharsets.UTF_8.newEncoder();
+    }
+  };
+
+  private static final ThreadLocal<CharsetDecoder> DECODER = new ThreadLocal<CharsetDecoder>() {
+    @Override
+    protected CharsetDecoder initialValue() {
+      return StandardCharsets.UTF_8.newDecoder();
+    }
+  };
+
+  private final Path indexFile;
+  // Key to value to the paths, guarded by this
+  private final Map<String, Map<Object, Set<Path>>> index = new HashMap<>();
+
+  /**
+   * @param indexFile the sidecar index, null for none
+   */
+  public TagStore(Path indexFile) throws IOException {
+    this.indexFile = indexFile;
+    if (indexFile != null && Files.exists(indexFile)) {
+      loadIndex();
+    }
+  }
+
+  /**
+   * Returns all tags of the file, empty if it has none
+   */
+  public Map<String, Object> read(Path file) throws IOException {
+    UserDefinedFileAttributeView view = view(file);
+    try (PooledBuffer pooled = BufferPool.shared().acquire(MAX_SIZE)) {
+      ByteBuffer buffer = pooled.buffer();
+      try {
+        view.read(ATTRIBUTE, buffer);
+      } catch (FileSystemException e) {
+        if (!missing(view, e)) {
+          throw e;
+        }
+        return new LinkedHashMap<>();
+      }
+      buffer.flip();
+      return decode(file, buffer);
+    }
+  }
+
+  /**
+   * Returns the tags of the files, one read per file
+   */
+  public Map<Path, Map<String, Object>> read(Collection<Path> files) throws IOException {
+    Map<Path, Map<String, Object>> tags = new HashMap<>(files.size() * 2);
+    for (Path file : files) {
+      tags.put(file, read(file));
+    }
+    return tags;
+  }
+
+  public Object get(Path file, String key) throws IOException {
+    return read(file).get(key);
+  }
+
+  public void put(Path file, String key, Object value) throws IOException {
+    putAll(file, Collections.singletonMap(key, value));
+  }
+
+  /**
+   * Adds or replaces the tags, a null value removes the tag
+   */
+  public synchronized void putAll(Path file, Map<String, ?> tags) throws IOException {
+    Map<String, Object> current = read(file);
+    Map<String, Object> before = new HashMap<>(current);
+    for (Map.Entry<String, ?> tag : tags.entrySet()) {
+      if (tag.getValue() == null) {
+        current.remove(tag.getKey());
+      } else {
+        current.put(tag.getKey(), normalize(tag.getValue()));
+      }
+    }
+    write(file, current);
+    Path key = file.toAbsolutePath();
+    for (Map.Entry<String, Object> tag : before.entrySet()) {
+      unindex(key, tag.getKey(), tag.getValue());
+    }
+    for (Map.Entry<String, Object> tag : current.entrySet()) {
+      index(key, tag.getKey(), tag.getValue());
+    }
+  }
+
+  public void remove(Path file, String key) throws IOException {
+    putAll(file, Collections.singletonMap(key, null));
+  }
+
+  /**
+   * Returns the files with the tag, from the index
+   */
+  public synchronized List<Path> find(String key, Object value) {
+    if (indexFile == null) {
+      throw new IllegalStateException("No index");
+    }
+    Map<Object, Set<Path>> values = index.get(key);
+    Set<Path> paths = values == null ? null : values.get(normalize(value));
+    return paths == null ? new ArrayList<Path>() : new ArrayList<>(paths);
+  }
+
+  /**
+   * Drops what the index has below the root and reads the tags of the tree again
+   */
+  public void reindex(final Path root) throws IOException {
+    final Path start = root.toAbsolutePath();
+    synchronized (this) {
+      for (Map<Object, Set<Path>> values : index.values()) {
+        for (Set<Path> paths : values.values()) {
+          Iterator<Path> it = paths.iterator();
+          while (it.hasNext()) {
+            if (it.next().startsWith(start)) {
+              it.remove();
+            }
+          }
+        }
+      }
+    }
+    Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (attrs.isRegularFile()) {
+          Map<String, Object> tags = read(file);
+          synchronized (TagStore.this) {
+            for (Map.Entry<String, Object> tag : tags.entrySet()) {
+              index(file, tag.getKey(), tag.getValue());
+            }
+          }
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void write(Path file, Map<String, Object> tags) throws IOException {
+    UserDefinedFileAttributeView view = view(file);
+    if (tags.isEmpty()) {
+      try {
+        view.delete(ATTRIBUTE);
+      } catch (FileSystemException e) {
+        if (!missing(view, e)) {
+          throw e;
+        }
+      }
+      return;
+    }
+    try (PooledBuffer pooled = BufferPool.shared().acquire(MAX_SIZE)) {
+      ByteBuffer buffer = pooled.buffer();
+      try {
+        encode(tags, buffer);
+      } catch (BufferOverflowException e) {
+        throw new IOException("Tags of " + file + " exceed " + MAX_SIZE + " bytes");
+      }
+      buffer.flip();
+      view.write(ATTRIBUTE, buffer);
+    }
+  }
+
+  /**
+   * Whether the attribute failed only because the file has none, ENODATA comes as a plain
+   * FileSystemException like ENOTSUP, EIO or ERANGE do, so the attribute is looked for
+   */
+  static boolean missing(UserDefinedFileAttributeView view, FileSystemException e) {
+    if (e instanceof NoSuchFileException || e instanceof AccessDeniedException) {
+      return false;
+    }
+    try {
+      return !view.list().contains(ATTRIBUTE);
+    } catch (IOException listing) {
+      e.addSuppressed(listing);
+      return false;
+    }
+  }
+
+  private static UserDefinedFileAttributeView view(Path file) throws IOException {
+    UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+    if (view == null) {
+      throw new UnsupportedOperationException("No user-defined attributes for " + file);
+    }
+    return view;
+  }
+
+  private static void encode(Map<String, Object> tags, ByteBuffer buffer) throws IOException {
+    buffer.put(VERSION);
+    putVarint(buffer, tags.size());
+    for (Map.Entry<String, Object> tag : tags.entrySet()) {
+      putString(buffer, tag.getKey());
+      Object value = tag.getValue();
+      if (value instanceof String) {
+        buffer.put(STRING);
+        putString(buffer, (String) value);
+      } else if (value instanceof Long) {
+        buffer.put(LONG);
+        long v = (Long) value;
+        putVarint(buffer, (v << 1) ^ (v >> 63));
+      } else if (value instanceof Boolean) {
+        buffer.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+      } else {
+        byte[] bytes = (byte[]) value;
+        buffer.put(BYTES).putShort((short) bytes.length).put(bytes);
+      }
+    }
+  }
+
+  private static Map<String, Object> decode(Path file, ByteBuffer buffer) throws IOException {
+    Map<String, Object> tags = new LinkedHashMap<>();
+    try {
+      if (buffer.get() != VERSION) {
+        throw new IOException("Unknown tags version in " + file);
+      }
+      long count = getVarint(buffer);
+      for (long i = 0; i < count; i++) {
+        String key = getString(buffer);
+        byte type = buffer.get();
+        switch (type) {
+        case STRING:
+          tags.put(key, getString(buffer));
+          break;
+        case LONG:
+          long v = getVarint(buffer);
+          tags.put(key, (v >>> 1) ^ -(v & 1));
+          break;
+        case BOOLEAN:
+          tags.put(key, buffer.get() != 0);
+          break;
+        case BYTES:
+          byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+          buffer.get(bytes);
+          tags.put(key, bytes);
+          break;
+        default:
+          throw new IOException("Unknown tag type " + type + " in " + file);
+        }
+      }
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt tags in " + file, e);
+    }
+    return tags;
+  }
+
+  /**
+   * Encodes straight into the buffer, the length is filled in afterwards
+   */
+  private static void putString(ByteBuffer buffer, String text) throws CharacterCodingException {
+    int lengthAt = buffer.position();
+    buffer.position(lengthAt + 2);
+    CharsetEncoder encoder = ENCODER.get().reset();
+    CoderResult result = encoder.encode(CharBuffer.wrap(text), buffer, true);
+    if (result.isUnderflow()) {
+      result = encoder.flush(buffer);
+    }
+    if (result.isOverflow()) {
+      throw new BufferOverflowException();
+    }
+    if (result.isError()) {
+      result.throwException();
+    }
+    int length = buffer.position() - lengthAt - 2;
+    if (length > 0xFFFF) {
+      throw new BufferOverflowException();
+    }
+    buffer.putShort(lengthAt, (short) length);
+  }
+
+  private static String getString(ByteBuffer buffer) throws CharacterCodingException {
+    int length = buffer.getShort() & 0xFFFF;
+    ByteBuffer bytes = buffer.slice();
+    bytes.limit(length);
+    buffer.position(buffer.position() + length);
+    return DECODER.get().decode(bytes).toString();
+  }
+
+  private static void putVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static long getVarint(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0;; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Integers are kept as Long
+   */
+  private static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    if (!(value instanceof String || value instanceof Long || value instanceof Boolean || value instanceof byte[])) {
+      throw new IllegalArgumentException("Not a tag value: " + value);
+    }
+    return value;
+  }
+
+  private void index(Path path, String key, Object value) {
+    if (indexFile == null || value instanceof byte[]) {
+      return;
+    }
+    Map<Object, Set<Path>> values = index.get(key);
+    if (values == null) {
+      values = new HashMap<>();
+      index.put(key, values);
+    }
+    Set<Path> paths = values.get(value);
+    if (paths == null) {
+      paths = new HashSet<>();
+      values.put(value, paths);
+    }
+    paths.add(path);
+  }
+
+  private void unindex(Path path, String key, Object value) {
+    if (indexFile == null || value instanceof byte[]) {
+      return;
+    }
+    Map<Object, Set<Path>> values = index.get(key);
+    Set<Path> paths = values == null ? null : values.get(value);
+    if (paths != null && paths.remove(path) && paths.isEmpty()) {
+      values.remove(value);
+      if (values.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Writes the index to its file, replaced at once by a rename
+   */
+  public synchronized void saveIndex() throws IOException {
+    if (indexFile == null) {
+      return;
+    }
+    Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(index.size());
+      for (Map.Entry<String, Map<Object, Set<Path>>> key : index.entrySet()) {
+        out.writeUTF(key.getKey());
+        out.writeInt(key.getValue().size());
+        for (Map.Entry<Object, Set<Path>> value : key.getValue().entrySet()) {
+          Object v = value.getKey();
+          if (v instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) v);
+          } else if (v instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) v);
+          } else {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) v);
+          }
+          out.writeInt(value.getValue().size());
+          for (Path path : value.getValue()) {
+            out.writeUTF(path.toString());
+          }
+        }
+      }
+    }
+    Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void loadIndex() throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 64 * 1024))) {
+      if (in.readInt() != INDEX_MAGIC) {
+        throw new IOException("Not a tag index: " + indexFile);
+      }
+      for (int keys = in.readInt(); keys > 0; keys--) {
+        String key = in.readUTF();
+        for (int values = in.readInt(); values > 0; values--) {
+          byte type = in.readByte();
+          Object value = type == STRING ? in.readUTF() : type == LONG ? (Object) in.readLong() : in.readBoolean();
+          for (int paths = in.readInt(); paths > 0; paths--) {
+            index(Paths.get(in.readUTF()), key, value);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Saves the index
+   */
+  @Override
+  public void close() throws IOException {
+    saveIndex();
+  }
+}
@@ -0,0 +1,230 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class TagStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void typedTagsInOneAttribute() throws Exception {
+
+    Path dir = createDirectory();
+    Path file = Files.createFile(dir.resolve("report.pdf"));
+    TagStore store = new TagStore(null);
+    Map<String, Object> tags = new LinkedHashMap<>();
+    tags.put("file.desc", "This file contains private information! 机密");
+    tags.put("pages", 12);
+    tags.put("offset", -5000000000L);
+    tags.put("private", true);
+    tags.put("checksum", new byte[] { 1, 2, 3 });
+    store.putAll(file, tags);
+
+    Map<String, Object> read = store.read(file);
+    assertEquals(5, read.size());
+    assertEquals("This file contains private information! 机密", read.get("file.desc"));
+    assertEquals(12L, read.get("pages"));
+    assertEquals(-5000000000L, read.get("offset"));
+    assertEquals(true, read.get("private"));
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) read.get("checksum"));
+
+    UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+    assertEquals(Collections.singletonList("tags"), view.list());
+
+    store.remove(file, "pages");
+    assertNull(store.get(file, "pages"));
+    assertEquals(4, store.read(file).size());
+    store.putAll(file, Collections.<String, Object> singletonMap("file.desc", null));
+    store.remove(file, "offset");
+    store.remove(file, "private");
+    store.remove(file, "checksum");
+    // The attribute goes with the last tag
+    assertTrue(view.list().isEmpty());
+    assertTrue(store.read(file).isEmpty());
+  }
+
+  @Test
+  public void failuresOtherThanNoAttribute() throws Exception {
+
+    Path dir = createDirectory();
+    Path file = Files.createFile(dir.resolve("report.pdf"));
+    UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+    // ENODATA, the file has no tags
+    assertTrue(TagStore.missing(view, new FileSystemException(file.toString())));
+
+    // Tags there but not readable, ERANGE for example, must not be taken for none
+    new TagStore(null).put(file, "pages", 12);
+    assertFalse(TagStore.missing(view, new FileSystemException(file.toString())));
+    assertFalse(TagStore.missing(view, new NoSuchFileException(file.toString())));
+
+    // Not even the list, the file is gone meanwhile
+    Files.delete(file);
+    FileSystemException failure = new FileSystemException(file.toString());
+    assertFalse(TagStore.missing(view, failure));
+    assertEquals(1, failure.getSuppressed().length);
+  }
+
+  @Test
+  public void findFromIndex() throws Exception {
+
+    Path dir = createDirectory();
+    Path indexFile = dir.resolveSibling(dir.getFileName() + ".index");
+    List<Path> files = createFiles(dir, 100);
+    try (TagStore store = new TagStore(indexFile)) {
+      for (int i = 0; i < files.size(); i++) {
+        store.put(files.get(i), "project", i % 2 == 0 ? "nio" : "io");
+        store.put(files.get(i), "year", 2026);
+      }
+      assertEquals(50, store.find("project", "nio").size());
+      assertEquals(100, store.find("year", 2026L).size());
+
+      store.put(files.get(0), "project", "io");
+      assertEquals(49, store.find("project", "nio").size());
+      assertEquals(51, store.find("project", "io").size());
+      store.remove(files.get(1), "project");
+      assertEquals(50, store.find("project", "io").size());
+    }
+
+    // Back from the index file
+    try (TagStore store = new TagStore(indexFile)) {
+      assertEquals(49, store.find("project", "nio").size());
+      assertTrue(store.find("project", "nio").contains(files.get(2).toAbsolutePath()));
+      assertEquals(100, store.find("year", 2026).size());
+    }
+
+    // Tags written by someone else are seen after a reindex
+    UserDefinedFileAttributeView view = Files.getFileAttributeView(files.get(3), UserDefinedFileAttributeView.class);
+    view.delete("tags");
+    try (TagStore store = new TagStore(indexFile)) {
+      assertEquals(100, store.find("year", 2026).size());
+      store.reindex(dir);
+      assertEquals(99, store.find("year", 2026).size());
+      assertTrue(store.find("project", "io").contains(files.get(0).toAbsolutePath()));
+    }
+  }
+
+  /**
+   * One attribute per tag with a new buffer each, as in MetadataTest, against the tag
+   * store, then a find from the index. Files with -DtagStore.files
+   */
+  @Test
+  public void fewerAttributeCalls() throws Exception {
+
+    int count = Integer.getInteger("tagStore.files", 5000);
+    Path dir = createDirectory();
+    Path indexFile = dir.resolveSibling(dir.getFileName() + ".index");
+    List<Path> files = createFiles(dir, count);
+    String[] keys = { "project", "owner", "state", "kind" };
+    TagStore store = new TagStore(indexFile);
+    for (int round = 0; round < 3; round++) {
+      long start = System.nanoTime();
+      for (Path file : files) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        for (String key : keys) {
+          view.write("plain." + key, StandardCharsets.UTF_8.encode(key + round));
+        }
+      }
+      int plainFound = 0;
+      for (Path file : files) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        for (String name : view.list()) {
+          ByteBuffer buffer = ByteBuffer.allocate(view.size(name));
+          view.read(name, buffer);
+          buffer.flip();
+          if (name.equals("plain.state") && StandardCharsets.UTF_8.decode(buffer).toString().equals("state" + round)) {
+            plainFound++;
+          }
+        }
+      }
+      long plain = System.nanoTime() - start;
+      for (Path file : files) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        for (String key : keys) {
+          view.delete("plain." + key);
+        }
+      }
+
+      start = System.nanoTime();
+      Map<String, Object> tags = new LinkedHashMap<>();
+      for (String key : keys) {
+        tags.put(key, key + round);
+      }
+      for (Path file : files) {
+        store.putAll(file, tags);
+      }
+      int storeFound = 0;
+      for (Map<String, Object> read : store.read(files).values()) {
+        if (("state" + round).equals(read.get("state"))) {
+          storeFound++;
+        }
+      }
+      long stored = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      int indexFound = store.find("state", "state" + round).size();
+      long indexed = System.nanoTime() - start;
+      assertEquals(count, plainFound);
+      assertEquals(count, storeFound);
+      assertEquals(count, indexFound);
+      System.out.println(count + " files x " + keys.length + " tags, one attribute each " + plain / 1000000
+          + " ms, tag store " + stored / 1000000 + " ms, index " + indexed / 1000 + " us");
+    }
+    store.close();
+  }
+
+  /**
+   * Skips the test where the file system has no user-defined attributes
+   */
+  private Path createDirectory() throws IOException {
+    Path dir = folder.newFolder().toPath();
+    UserDefinedFileAttributeView view = Files.getFileAttributeView(dir, UserDefinedFileAttributeView.class);
+    boolean supported = view != null;
+    if (supported) {
+      try {
+        view.write("probe", ByteBuffer.wrap(new byte[1]));
+        view.delete("probe");
+      } catch (IOException e) {
+        supported = false;
+      }
+    }
+    Assume.assumeTrue(supported);
+    return dir;
+  }
+
+  private static List<Path> createFiles(Path dir, int count) throws IOException {
+    List<Path> paths = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      paths.add(Files.createFile(dir.resolve("file" + i)));
+    }
+    return paths;
+  }
+}
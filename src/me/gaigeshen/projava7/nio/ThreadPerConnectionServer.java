@@ -0,0 +1,135 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blocking echo server in the style of blockingTcpServer, every connection is served
+ * by its own thread doing plain blocking reads and writes. With virtual threads a
+ * blocked read only parks the virtual thread, so the server scales to a very large
+ * number of mostly idle connections.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class ThreadPerConnectionServer implements Closeable {
+
+  private final InetSocketAddress address;
+  private final ExecutorService executor;
+  private final AtomicInteger connections = new AtomicInteger();
+  private ServerSocketChannel channel;
+  private Thread acceptor;
+
+  /**
+   * Serve the connections on virtual threads if the runtime has them
+   */
+  public ThreadPerConnectionServer(InetSocketAddress address) {
+    this(address, newThreadPerTaskExecutor());
+  }
+
+  public ThreadPerConnectionServer(InetSocketAddress address, ExecutorService executor) {
+    this.address = address;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns Executors.newVirtualThreadPerTaskExecutor() on Java 21 and later, a cached
+   * thread pool of platform threads otherwise
+   */
+  public static ExecutorService newThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  public void start() throws IOException {
+    channel = ServerSocketChannel.open();
+    channel.configureBlocking(true);
+    channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024);
+    channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    channel.bind(address, 1024);
+
+    acceptor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        accept();
+      }
+    }, "acceptor");
+    acceptor.start();
+  }
+
+  public InetSocketAddress getLocalAddress() throws IOException {
+    return (InetSocketAddress) channel.getLocalAddress();
+  }
+
+  /**
+   * Returns the number of connections currently served
+   */
+  public int connections() {
+    return connections.get();
+  }
+
+  private void accept() {
+    try {
+      while (true) {
+        final SocketChannel socket = channel.accept();
+        connections.incrementAndGet();
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            serve(socket);
+          }
+        });
+      }
+    } catch (IOException e) {
+      // Closed
+    }
+  }
+
+  private void serve(SocketChannel socket) {
+    try (SocketChannel s = socket; PooledBuffer pooled = BufferPool.shared().acquire(1024)) {
+      s.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      ByteBuffer buffer = pooled.buffer();
+      while (s.read(buffer) != -1) {
+        buffer.flip();
+        s.write(buffer);
+        if (buffer.hasRemaining()) {
+          buffer.compact();
+        } else {
+          buffer.clear();
+        }
+      }
+    } catch (IOException e) {
+      // Connection reset or server closed
+    } finally {
+      connections.decrementAndGet();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+    executor.shutdownNow();
+    try {
+      if (acceptor != null) {
+        acceptor.join();
+      }
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
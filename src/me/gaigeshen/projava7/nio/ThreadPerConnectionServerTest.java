@@ -0,0 +1,158 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class ThreadPerConnectionServerTest {
+
+  @Test
+  public void echo() throws Exception {
+
+    try (ThreadPerConnectionServer server = new ThreadPerConnectionServer(new InetSocketAddress("127.0.0.1", 0))) {
+      server.start();
+      try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+        socket.write(ByteBuffer.wrap("Hello !".getBytes()));
+        ByteBuffer buffer = ByteBuffer.allocate(7);
+        while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+        }
+        assertEquals("Hello !", new String(buffer.array()));
+      }
+    }
+  }
+
+  @Test
+  public void compareWithSelectorServer() throws Exception {
+
+    // Run with -Didle.connections=100000 (and a matching ulimit -n) for the real thing
+    int idle = Integer.getInteger("idle.connections", 2000);
+
+    try (ThreadPerConnectionServer server = new ThreadPerConnectionServer(new InetSocketAddress("127.0.0.1", 0))) {
+      server.start();
+      report("thread per connection", server.getLocalAddress(), idle);
+    }
+    try (MultiReactorServer server = new MultiReactorServer(new InetSocketAddress("127.0.0.1", 0),
+        new EchoHandler())) {
+      server.start();
+      report("selector", server.getLocalAddress(), idle);
+    }
+  }
+
+  private void report(String name, InetSocketAddress address, int idle) throws Exception {
+
+    // Memory per idle connection, client sockets live in this JVM too so only the
+    // difference between the two servers is meaningful
+    List<Closeable> sockets = new ArrayList<>(idle);
+    long before = usedMemory();
+    int threads = Thread.activeCount();
+    try {
+      for (int i = 0; i < idle; i++) {
+        SocketChannel socket = SocketChannel.open(address);
+        sockets.add(socket);
+        // Make sure the connection is served before measuring
+        if (i == idle - 1) {
+          ByteBuffer buffer = ByteBuffer.allocate(1);
+          socket.write(buffer);
+          buffer.clear();
+          socket.read(buffer);
+        }
+      }
+      long perConnection = (usedMemory() - before) / idle;
+
+      long[] latencies = pingPong(address, 16, 1000);
+      Arrays.sort(latencies);
+
+      System.out.println(name + ": " + idle + " idle, " + perConnection + " bytes/connection, "
+          + (Thread.activeCount() - threads) + " threads, " + latencies.length + " msg/s, p50 "
+          + percentile(latencies, 0.5) / 1000 + " us, p99 " + percentile(latencies, 0.99) / 1000
+          + " us, p99.9 " + percentile(latencies, 0.999) / 1000 + " us");
+    } finally {
+      for (Closeable socket : sockets) {
+        socket.close();
+      }
+    }
+  }
+
+  /**
+   * Round trip times in nanoseconds of all the echoes within the duration
+   */
+  private long[] pingPong(final InetSocketAddress address, int clients, final long millis) throws Exception {
+
+    final long[][] results = new long[clients][];
+    final CountDownLatch done = new CountDownLatch(clients);
+    final long deadline = System.nanoTime() + millis * 1000000L;
+    for (int i = 0; i < clients; i++) {
+      final int client = i;
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          long[] latencies = new long[1024];
+          int count = 0;
+          try (SocketChannel socket = SocketChannel.open(address)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(128);
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+              buffer.clear();
+              socket.write(buffer);
+              buffer.clear();
+              while (buffer.hasRemaining() && socket.read(buffer) != -1) {
+              }
+              if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+              }
+              latencies[count++] = System.nanoTime() - now;
+            }
+          } catch (IOException e) {
+            System.out.println("Client failed: " + e);
+          } finally {
+            results[client] = Arrays.copyOf(latencies, count);
+            done.countDown();
+          }
+        }
+      }).start();
+    }
+    done.await();
+    int total = 0;
+    for (long[] result : results) {
+      total += result.length;
+    }
+    long[] all = new long[total];
+    int offset = 0;
+    for (long[] result : results) {
+      System.arraycopy(result, 0, all, offset, result.length);
+      offset += result.length;
+    }
+    return all;
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * percentile))];
+  }
+
+  private static long usedMemory() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,160 @@
+package me.gaigeshen.projava7.nio;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel: a ring of slots, each a doubly-linked list of timeouts. A
+ * timeout is linked into the slot of its deadline tick, with the number of full turns
+ * of the wheel left before it expires. Scheduling and cancelling are O(1), a tick only
+ * visits the timeouts of one slot.
+ * <p>
+ * Not thread-safe, it is meant to be driven by the thread of a selector loop.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class TimingWheel {
+
+  /**
+   * A timeout which can be scheduled again and again without allocation
+   */
+  public abstract static class Timeout {
+
+    private Timeout prev;
+    private Timeout next;
+    private Timeout nextExpired;
+    private int slot = -1;
+    private long rounds;
+    private long deadline;
+
+    /**
+     * Called by {@link TimingWheel#advance(long)} once the deadline passed
+     */
+    protected abstract void expired(long now);
+
+    public boolean isScheduled() {
+      return slot >= 0;
+    }
+
+    public long deadline() {
+      return deadline;
+    }
+  }
+
+  private final Timeout[] slots;
+  private final int mask;
+  private final long tickNanos;
+  private final long start;
+  private long tick;
+  private int size;
+
+  /**
+   * @param tickDuration the resolution of the wheel
+   * @param wheelSize number of slots, rounded up to a power of two; the wheel turns
+   *        once every wheelSize ticks
+   */
+  public TimingWheel(long tickDuration, TimeUnit unit, int wheelSize, long now) {
+    if (tickDuration <= 0 || wheelSize <= 0 || wheelSize > (1 << 30)) {
+      throw new IllegalArgumentException("tickDuration: " + tickDuration + ", wheelSize: " + wheelSize);
+    }
+    int length = Integer.highestOneBit(wheelSize - 1) << 1;
+    this.slots = new Timeout[Math.max(length, 1)];
+    this.mask = slots.length - 1;
+    this.tickNanos = unit.toNanos(tickDuration);
+    this.start = now;
+  }
+
+  /**
+   * Schedule the timeout for the deadline (System.nanoTime() based), reschedules it if
+   * it was scheduled already
+   */
+  public void schedule(Timeout timeout, long deadline) {
+    if (timeout.isScheduled()) {
+      unlink(timeout);
+    }
+    long ticks = Math.max((deadline - start) / tickNanos, tick);
+    int slot = (int) (ticks & mask);
+    timeout.deadline = deadline;
+    timeout.rounds = (ticks - tick) / slots.length;
+    timeout.slot = slot;
+    timeout.prev = null;
+    timeout.next = slots[slot];
+    if (timeout.next != null) {
+      timeout.next.prev = timeout;
+    }
+    slots[slot] = timeout;
+    size++;
+  }
+
+  public void cancel(Timeout timeout) {
+    if (timeout.isScheduled()) {
+      unlink(timeout);
+    }
+  }
+
+  /**
+   * Process every tick which ended before now, so a timeout never expires early and at
+   * most one tick late. Expired timeouts are called after they were removed from the
+   * wheel, so they can schedule themselves again.
+   */
+  public void advance(long now) {
+    long target = (now - start) / tickNanos;
+    while (tick < target && size > 0) {
+      Timeout expired = null;
+      Timeout timeout = slots[(int) (tick & mask)];
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.rounds <= 0) {
+          unlink(timeout);
+          timeout.nextExpired = expired;
+          expired = timeout;
+        } else {
+          timeout.rounds--;
+        }
+        timeout = next;
+      }
+      tick++;
+      while (expired != null) {
+        Timeout next = expired.nextExpired;
+        expired.nextExpired = null;
+        expired.expired(now);
+        expired = next;
+      }
+    }
+    if (size == 0 && tick < target) {
+      // Nothing scheduled, jump ahead
+      tick = target;
+    }
+  }
+
+  /**
+   * Returns the milliseconds until the current tick ends, or 0 if nothing is scheduled,
+   * suitable for Selector.select(long)
+   */
+  public long nextTickMillis(long now) {
+    if (size == 0) {
+      return 0;
+    }
+    long next = start + (tick + 1) * tickNanos;
+    return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next - now + 999999));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void unlink(Timeout timeout) {
+    if (timeout.prev != null) {
+      timeout.prev.next = timeout.next;
+    } else {
+      slots[timeout.slot] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.prev = null;
+    timeout.next = null;
+    timeout.slot = -1;
+    size--;
+  }
+}
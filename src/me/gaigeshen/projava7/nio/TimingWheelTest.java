@@ -0,0 +1,117 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class TimingWheelTest {
+
+  private static final long MS = 1000000L;
+
+  static class Recorded extends TimingWheel.Timeout {
+
+    final List<Long> expirations;
+
+    Recorded(List<Long> expirations) {
+      this.expirations = expirations;
+    }
+
+    @Override
+    protected void expired(long now) {
+      expirations.add(now);
+    }
+  }
+
+  @Test
+  public void expireInOrder() throws Exception {
+
+    TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+    List<Long> expirations = new ArrayList<>();
+    Recorded early = new Recorded(expirations);
+    Recorded late = new Recorded(expirations);
+    Recorded cancelled = new Recorded(expirations);
+
+    wheel.schedule(early, 25 * MS);
+    // More than one turn of the wheel away (8 x 10 ms)
+    wheel.schedule(late, 205 * MS);
+    wheel.schedule(cancelled, 30 * MS);
+    wheel.cancel(cancelled);
+    assertEquals(2, wheel.size());
+
+    // Never early
+    wheel.advance(20 * MS);
+    assertTrue(expirations.isEmpty());
+    wheel.advance(30 * MS);
+    assertEquals(1, expirations.size());
+    assertFalse(early.isScheduled());
+
+    // At most one tick late
+    wheel.advance(200 * MS);
+    assertEquals(1, expirations.size());
+    wheel.advance(210 * MS);
+    assertEquals(2, expirations.size());
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void rescheduleFromExpired() throws Exception {
+
+    final TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS, 8, 0);
+    final List<Long> expirations = new ArrayList<>();
+    TimingWheel.Timeout periodic = new TimingWheel.Timeout() {
+      @Override
+      protected void expired(long now) {
+        expirations.add(now);
+        if (expirations.size() < 3) {
+          wheel.schedule(this, now + 50 * MS);
+        }
+      }
+    };
+    wheel.schedule(periodic, 50 * MS);
+    for (long now = 0; now <= 1000 * MS; now += 5 * MS) {
+      wheel.advance(now);
+    }
+    assertEquals(3, expirations.size());
+    assertEquals(60 * MS, (long) expirations.get(0));
+    assertEquals(120 * MS, (long) expirations.get(1));
+  }
+
+  @Test
+  public void manyConnections() throws Exception {
+
+    // 200k connections touched on every tick, like active connections of a busy server
+    int connections = 200000;
+    TimingWheel wheel = new TimingWheel(100, TimeUnit.MILLISECONDS, 512, 0);
+    List<Long> expirations = new ArrayList<>();
+    Recorded[] timeouts = new Recorded[connections];
+    for (int i = 0; i < connections; i++) {
+      timeouts[i] = new Recorded(expirations);
+      wheel.schedule(timeouts[i], 30000 * MS + i * 1000L);
+    }
+
+    long start = System.nanoTime();
+    long now = 0;
+    for (int tick = 0; tick < 100; tick++) {
+      now += 100 * MS;
+      for (int i = tick; i < connections; i += 100) {
+        wheel.schedule(timeouts[i], now + 30000 * MS);
+      }
+      wheel.advance(now);
+    }
+    long elapsed = System.nanoTime() - start;
+    assertTrue(expirations.isEmpty());
+
+    System.out.println("100 ticks, " + connections + " reschedules: " + elapsed / MS + " ms");
+  }
+}
@@ -0,0 +1,387 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log in fixed size segment files. A record is framed as its length plus one,
+ * the CRC32 of its payload and the payload. A 0 in place of the length marks the end of a
+ * segment, so empty records are written as 1.
+ * <p>
+ * Appenders are batched (group commit): whoever finds no write in progress writes all
+ * records queued so far with one gathering write and one force(), the others wait for
+ * it. The more threads append, the more records share one force(). Segments are filled
+ * with zeros when they are created, so force(false) never has to update the file size.
+ * <p>
+ * Opening a log scans the last segment up to the last record with a valid checksum,
+ * whatever follows it, a torn write for example, is cleared.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class WriteAheadLog implements Closeable {
+
+  /**
+   * Receives the records on replay, the payload is only valid during the call
+   */
+  public interface RecordHandler {
+
+    void record(long position, ByteBuffer payload) throws IOException;
+  }
+
+  static final int HEADER = 8;
+  private static final String SUFFIX = ".wal";
+  private static final int MAX_GATHER = 1024;
+
+  private static class Append {
+
+    final ByteBuffer payload;
+    long position = -1;
+    IOException failure;
+    boolean done;
+
+    Append(ByteBuffer payload) {
+      this.payload = payload;
+    }
+  }
+
+  private final Path directory;
+  private final int segmentSize;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition written = lock.newCondition();
+  private final CRC32 crc = new CRC32();
+  private final AtomicLong appends = new AtomicLong();
+  private final AtomicLong forces = new AtomicLong();
+  private List<Append> queue = new ArrayList<>();
+  private boolean writing;
+  private boolean closed;
+  private IOException broken;
+  private ByteBuffer headers = ByteBuffer.allocateDirect(HEADER * 64);
+  // Only touched by the thread that writes the batch
+  private FileChannel segment;
+  private long segmentIndex;
+  private int offset;
+
+  /**
+   * Opens the log in the directory, or creates it
+   *
+   * @param segmentSize the bytes per segment file, also the limit of a record
+   */
+  public WriteAheadLog(Path directory, int segmentSize) throws IOException {
+    if (segmentSize < HEADER * 2) {
+      throw new IllegalArgumentException("segmentSize: " + segmentSize);
+    }
+    this.directory = Files.createDirectories(directory);
+    this.segmentSize = segmentSize;
+    List<Long> segments = segments();
+    if (segments.isEmpty()) {
+      openSegment(0);
+    } else {
+      segmentIndex = segments.get(segments.size() - 1);
+      segment = FileChannel.open(segmentPath(segmentIndex), StandardOpenOption.READ, StandardOpenOption.WRITE);
+      offset = recover();
+    }
+  }
+
+  /**
+   * Appends the record and returns its position once it is on disk
+   */
+  public long append(ByteBuffer payload) throws IOException {
+    if (payload.remaining() > segmentSize - HEADER * 2) {
+      throw new IllegalArgumentException("Record too large: " + payload.remaining());
+    }
+    Append append = new Append(payload);
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IOException("Log closed");
+      }
+      if (broken != null) {
+        // A failed batch may have left a gap, nothing after it would be recovered
+        throw new IOException("Log failed", broken);
+      }
+      queue.add(append);
+      while (!append.done) {
+        if (writing) {
+          written.awaitUninterruptibly();
+          continue;
+        }
+        // Lead the next batch, it holds this record and everything queued since
+        List<Append> batch = queue;
+        queue = new ArrayList<>();
+        writing = true;
+        lock.unlock();
+        IOException failure = null;
+        try {
+          write(batch);
+        } catch (IOException e) {
+          failure = e;
+        } finally {
+          lock.lock();
+          writing = false;
+          if (failure != null) {
+            broken = failure;
+          }
+          for (Append each : batch) {
+            each.failure = failure;
+            each.done = true;
+          }
+          written.signalAll();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (append.failure != null) {
+      throw append.failure;
+    }
+    return append.position;
+  }
+
+  private void write(List<Append> batch) throws IOException {
+    if (headers.capacity() < batch.size() * HEADER) {
+      headers = ByteBuffer.allocateDirect(Integer.highestOneBit(batch.size() * HEADER) * 2);
+    }
+    headers.clear();
+    List<ByteBuffer> buffers = new ArrayList<>(batch.size() * 2);
+    int start = offset;
+    for (Append append : batch) {
+      int length = append.payload.remaining();
+      // Keep room for the end marker
+      if (offset + HEADER + length > segmentSize - HEADER) {
+        flush(buffers, start);
+        forceAndRoll();
+        start = offset;
+      }
+      crc.reset();
+      crc.update(append.payload.duplicate());
+      ByteBuffer header = headers.slice();
+      header.limit(HEADER);
+      header.putInt(length + 1).putInt((int) crc.getValue()).flip();
+      headers.position(headers.position() + HEADER);
+      buffers.add(header);
+      buffers.add(append.payload.duplicate());
+      append.position = segmentIndex * segmentSize + offset;
+      offset += HEADER + length;
+    }
+    flush(buffers, start);
+    segment.force(false);
+    forces.incrementAndGet();
+    appends.addAndGet(batch.size());
+  }
+
+  /**
+   * Gathering writes until all buffers are written
+   */
+  private void flush(List<ByteBuffer> buffers, int position) throws IOException {
+    ByteBuffer[] array = buffers.toArray(new ByteBuffer[buffers.size()]);
+    segment.position(position);
+    int first = 0;
+    while (first < array.length) {
+      segment.write(array, first, Math.min(MAX_GATHER, array.length - first));
+      while (first < array.length && !array[first].hasRemaining()) {
+        first++;
+      }
+    }
+    buffers.clear();
+  }
+
+  private void forceAndRoll() throws IOException {
+    segment.force(false);
+    forces.incrementAndGet();
+    segment.close();
+    openSegment(segmentIndex + 1);
+  }
+
+  private void openSegment(long index) throws IOException {
+    Path path = segmentPath(index);
+    Path temp = directory.resolve(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      zero(channel, 0, segmentSize);
+      channel.force(true);
+    }
+    // Only fully allocated segments get their name
+    Files.move(temp, path);
+    syncDirectory();
+    segment = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segmentIndex = index;
+    offset = 0;
+  }
+
+  private static void zero(FileChannel channel, long position, long end) throws IOException {
+    ByteBuffer zeros = ByteBuffer.allocateDirect(64 * 1024);
+    while (position < end) {
+      zeros.clear();
+      zeros.limit((int) Math.min(zeros.capacity(), end - position));
+      while (zeros.hasRemaining()) {
+        position += channel.write(zeros, position);
+      }
+    }
+  }
+
+  /**
+   * Makes the new directory entry durable, not possible on every platform
+   */
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Windows can not open a directory
+    }
+  }
+
+  /**
+   * Returns the end of the valid records in the current segment, clears what follows
+   */
+  private int recover() throws IOException {
+    int end = (int) scan(segment, segmentIndex, null);
+    zero(segment, end, segmentSize);
+    segment.force(false);
+    return end;
+  }
+
+  /**
+   * Hands the records of all segments to the handler, in order, meant to be called
+   * before appending
+   *
+   * @return the number of records
+   */
+  public long replay(RecordHandler handler) throws IOException {
+    CountingHandler counting = new CountingHandler(handler);
+    for (long index : segments()) {
+      try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+        scan(channel, index, counting);
+      }
+    }
+    return counting.count;
+  }
+
+  private static class CountingHandler implements RecordHandler {
+
+    final RecordHandler handler;
+    long count;
+
+    CountingHandler(RecordHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public void record(long position, ByteBuffer payload) throws IOException {
+      count++;
+      handler.record(position, payload);
+    }
+  }
+
+  /**
+   * Reads records up to the first one that is missing or broken
+   *
+   * @return the offset after the last valid record
+   */
+  private long scan(FileChannel channel, long index, RecordHandler handler) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER);
+    ByteBuffer payload = ByteBuffer.allocate(1024);
+    CRC32 checksum = new CRC32();
+    long size = Math.min(channel.size(), segmentSize);
+    long position = 0;
+    while (position + HEADER <= size) {
+      header.clear();
+      if (!readFully(channel, header, position)) {
+        break;
+      }
+      // Stored plus one, 0 is the end of the segment
+      int length = header.getInt(0) - 1;
+      if (length < 0 || length > size - position - HEADER) {
+        break;
+      }
+      if (payload.capacity() < length) {
+        payload = ByteBuffer.allocate(Integer.highestOneBit(length) * 2);
+      }
+      payload.clear();
+      payload.limit(length);
+      if (!readFully(channel, payload, position + HEADER)) {
+        break;
+      }
+      payload.flip();
+      checksum.reset();
+      checksum.update(payload.array(), 0, length);
+      if ((int) checksum.getValue() != header.getInt(4)) {
+        break;
+      }
+      if (handler != null) {
+        handler.record(index * segmentSize + position, payload);
+      }
+      position += HEADER + length;
+    }
+    return position;
+  }
+
+  private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) == -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<Long> segments() throws IOException {
+    List<Long> segments = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  private Path segmentPath(long index) {
+    return directory.resolve(String.format("%020d%s", index, SUFFIX));
+  }
+
+  /**
+   * Returns the number of records appended since the log was opened
+   */
+  long appends() {
+    return appends.get();
+  }
+
+  /**
+   * Returns the number of force() calls since the log was opened
+   */
+  long forces() {
+    return forces.get();
+  }
+
+  /**
+   * Waits for the batch in progress, later appends fail
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      closed = true;
+      while (writing || !queue.isEmpty()) {
+        written.awaitUninterruptibly();
+      }
+      segment.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class WriteAheadLogTest {
+
+  @Test
+  public void appendAndReplay() throws Exception {
+
+    Path directory = Files.createTempDirectory("wal");
+    try {
+      List<String> expected = new ArrayList<>();
+      long last = -1;
+      // Small segments, the records roll over a few of them
+      try (WriteAheadLog log = new WriteAheadLog(directory, 16 * 1024)) {
+        for (int i = 0; i < 1000; i++) {
+          String record = "record " + i + " " + new String(new char[i % 100]).replace('\0', 'x');
+          long position = log.append(ByteBuffer.wrap(record.getBytes()));
+          assertTrue(position > last);
+          last = position;
+          expected.add(record);
+        }
+        assertEquals(1000, log.appends());
+      }
+      assertEquals(expected, replay(directory));
+
+      // Appends go on after reopening
+      try (WriteAheadLog log = new WriteAheadLog(directory, 16 * 1024)) {
+        assertTrue(log.append(ByteBuffer.wrap("after reopen".getBytes())) > last);
+      }
+      expected.add("after reopen");
+      assertEquals(expected, replay(directory));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  @Test
+  public void emptyRecord() throws Exception {
+
+    Path directory = Files.createTempDirectory("wal");
+    try {
+      try (WriteAheadLog log = new WriteAheadLog(directory, 16 * 1024)) {
+        log.append(ByteBuffer.wrap("one".getBytes()));
+        log.append(ByteBuffer.allocate(0));
+        log.append(ByteBuffer.wrap("three".getBytes()));
+      }
+      // Neither taken for the end of the segment on replay nor cleared by recovery
+      List<String> expected = new ArrayList<>();
+      expected.add("one");
+      expected.add("");
+      expected.add("three");
+      assertEquals(expected, replay(directory));
+      try (WriteAheadLog log = new WriteAheadLog(directory, 16 * 1024)) {
+        log.append(ByteBuffer.wrap("four".getBytes()));
+      }
+      expected.add("four");
+      assertEquals(expected, replay(directory));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  @Test
+  public void recoverTornWrite() throws Exception {
+
+    Path directory = Files.createTempDirectory("wal");
+    try {
+      long position;
+      try (WriteAheadLog log = new WriteAheadLog(directory, 64 * 1024)) {
+        log.append(ByteBuffer.wrap("first".getBytes()));
+        log.append(ByteBuffer.wrap("second".getBytes()));
+        position = log.append(ByteBuffer.wrap("third".getBytes()));
+      }
+      // Damage the payload of the last record as if its write was torn
+      try (FileChannel channel = FileChannel.open(directory.resolve(String.format("%020d.wal", 0)),
+          StandardOpenOption.WRITE)) {
+        channel.write(ByteBuffer.wrap(new byte[] { 'X' }), position + WriteAheadLog.HEADER + 2);
+      }
+      try (WriteAheadLog log = new WriteAheadLog(directory, 64 * 1024)) {
+        assertEquals(2, log.replay(new WriteAheadLog.RecordHandler() {
+          @Override
+          public void record(long position, ByteBuffer payload) {
+          }
+        }));
+        // Written over the broken record
+        assertEquals(position, log.append(ByteBuffer.wrap("fourth".getBytes())));
+      }
+      List<String> expected = new ArrayList<>();
+      expected.add("first");
+      expected.add("second");
+      expected.add("fourth");
+      assertEquals(expected, replay(directory));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  /**
+   * Appends per second and appends per force() by the number of writer threads
+   */
+  @Test
+  public void groupCommit() throws Exception {
+
+    for (int threads = 1; threads <= 32; threads *= 2) {
+      Path directory = Files.createTempDirectory("wal");
+      try (final WriteAheadLog log = new WriteAheadLog(directory, 16 * 1024 * 1024)) {
+        final int perThread = 4000 / threads;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                for (int j = 0; j < perThread; j++) {
+                  log.append(ByteBuffer.wrap(new byte[100]));
+                }
+              } catch (IOException e) {
+                failure.set(e);
+              } finally {
+                done.countDown();
+              }
+            }
+          }.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        if (failure.get() != null) {
+          throw new AssertionError(failure.get());
+        }
+        assertEquals(perThread * threads, log.appends());
+        System.out.println(threads + " threads: " + log.appends() * 1000000000L / elapsed + " appends/s, "
+            + log.appends() / log.forces() + " appends per force");
+      } finally {
+        delete(directory);
+      }
+    }
+  }
+
+  private static List<String> replay(Path directory) throws IOException {
+    final List<String> records = new ArrayList<>();
+    try (WriteAheadLog log = new WriteAheadLog(directory, 16 * 1024)) {
+      log.replay(new WriteAheadLog.RecordHandler() {
+        @Override
+        public void record(long position, ByteBuffer payload) {
+          byte[] bytes = new byte[payload.remaining()];
+          payload.get(bytes);
+          records.add(new String(bytes));
+        }
+      });
+    }
+    return records;
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path path : stream) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(directory);
+  }
+}
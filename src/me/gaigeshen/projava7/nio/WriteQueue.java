@@ -0,0 +1,165 @@
+package me.gaigeshen.projava7.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Bounded FIFO of outbound buffers for one connection. Buffers are drained with
+ * gathering writes, a partial write leaves the rest of the head buffer in the queue.
+ * File regions can be queued between the buffers, they are sent with transferTo.
+ * <p>
+ * The watermarks are used for backpressure: stop reading from the peer when the
+ * queued bytes pass the high-water mark and resume once they drain below the low-water
+ * mark. The capacity is a hard limit, {@link #offer(ByteBuffer)} fails above it.
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class WriteQueue {
+
+  /**
+   * Maximum number of buffers passed to one gathering write
+   */
+  private static final int GATHER = 64;
+
+  // PooledBuffer and FileRegion entries in the order they were offered
+  private final ArrayDeque<Object> entries = new ArrayDeque<>();
+  private final ByteBuffer[] gather = new ByteBuffer[GATHER];
+  private final int lowWaterMark;
+  private final int highWaterMark;
+  private final int capacity;
+  private long queued;
+
+  public WriteQueue() {
+    this(32 * 1024, 64 * 1024, 1024 * 1024);
+  }
+
+  public WriteQueue(int lowWaterMark, int highWaterMark, int capacity) {
+    if (lowWaterMark < 0 || lowWaterMark > highWaterMark || highWaterMark > capacity) {
+      throw new IllegalArgumentException("lowWaterMark: " + lowWaterMark
+          + ", highWaterMark: " + highWaterMark + ", capacity: " + capacity);
+    }
+    this.lowWaterMark = lowWaterMark;
+    this.highWaterMark = highWaterMark;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Add the buffer, ready for get operations, to the tail of the queue. The queue
+   * owns the buffer from now on. Returns false if the capacity would be exceeded.
+   */
+  public boolean offer(ByteBuffer buffer) {
+    return offer(PooledBuffer.wrap(buffer));
+  }
+
+  /**
+   * Same as {@link #offer(ByteBuffer)}, the buffer is released to its pool once it
+   * was written or the queue is cleared. It is not released if the offer fails.
+   */
+  public boolean offer(PooledBuffer pooled) {
+    ByteBuffer buffer = pooled.buffer();
+    if (queued + buffer.remaining() > capacity) {
+      return false;
+    }
+    if (!buffer.hasRemaining()) {
+      pooled.release();
+      return true;
+    }
+    entries.addLast(pooled);
+    queued += buffer.remaining();
+    return true;
+  }
+
+  /**
+   * Add a file region to the tail of the queue, it is sent with transferTo once the
+   * buffers in front of it are written, and closed when done. File regions do not
+   * count against the capacity and the watermarks, they hold no memory.
+   */
+  public void offer(FileRegion region) {
+    entries.addLast(region);
+  }
+
+  /**
+   * Write as much as the channel accepts, returns the number of bytes written
+   */
+  public long flush(GatheringByteChannel channel) throws IOException {
+    long total = 0;
+    while (!entries.isEmpty()) {
+      Object head = entries.peekFirst();
+      if (head instanceof FileRegion) {
+        FileRegion region = (FileRegion) head;
+        total += region.transferTo(channel);
+        if (region.remaining() > 0) {
+          // The socket is full, resume on the next OP_WRITE
+          break;
+        }
+        entries.pollFirst();
+        region.close();
+        continue;
+      }
+      // Gather the buffers up to the next file region
+      int length = 0;
+      for (Object entry : entries) {
+        if (!(entry instanceof PooledBuffer)) {
+          break;
+        }
+        gather[length++] = ((PooledBuffer) entry).buffer();
+        if (length == GATHER) {
+          break;
+        }
+      }
+      long written = channel.write(gather, 0, length);
+      Arrays.fill(gather, 0, length, null);
+      total += written;
+      queued -= written;
+      // Drop the buffers written completely, the head may be written partially
+      while (!entries.isEmpty() && entries.peekFirst() instanceof PooledBuffer
+          && !((PooledBuffer) entries.peekFirst()).buffer().hasRemaining()) {
+        ((PooledBuffer) entries.pollFirst()).release();
+      }
+      if (!entries.isEmpty() && entries.peekFirst() instanceof PooledBuffer) {
+        break;
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Discard the queued buffers and close the file regions, for example when the
+   * connection is closed
+   */
+  public void clear() {
+    Object entry;
+    while ((entry = entries.pollFirst()) != null) {
+      if (entry instanceof PooledBuffer) {
+        ((PooledBuffer) entry).release();
+      } else {
+        try {
+          ((FileRegion) entry).close();
+        } catch (IOException e) {
+          // Ignore
+        }
+      }
+    }
+    queued = 0;
+  }
+
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  public long queuedBytes() {
+    return queued;
+  }
+
+  public boolean isAboveHighWaterMark() {
+    return queued > highWaterMark;
+  }
+
+  public boolean isBelowLowWaterMark() {
+    return queued <= lowWaterMark;
+  }
+}
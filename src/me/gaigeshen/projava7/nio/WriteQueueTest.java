@@ -0,0 +1,60 @@
+package me.gaigeshen.projava7.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author gaigeshen
+ * @since 10/17 2026
+ */
+public class WriteQueueTest {
+
+  @Test
+  public void partialWrites() throws Exception {
+
+    Pipe pipe = Pipe.open();
+    // A non-blocking sink accepts only what fits in the pipe buffer
+    pipe.sink().configureBlocking(false);
+    pipe.source().configureBlocking(false);
+
+    WriteQueue queue = new WriteQueue(16 * 1024, 256 * 1024, 1024 * 1024);
+    int total = 0;
+    for (int i = 0; i < 512; i++) {
+      ByteBuffer buffer = ByteBuffer.allocate(1024);
+      while (buffer.hasRemaining()) {
+        buffer.put((byte) (total++ % 127));
+      }
+      buffer.flip();
+      assertTrue(queue.offer(buffer));
+    }
+    assertTrue(queue.isAboveHighWaterMark());
+    // Above the capacity
+    assertFalse(queue.offer(ByteBuffer.allocate(600 * 1024)));
+
+    // Drain the pipe while flushing, every byte must come out once and in order
+    ByteBuffer read = ByteBuffer.allocate(8 * 1024);
+    int received = 0;
+    while (received < total) {
+      queue.flush(pipe.sink());
+      read.clear();
+      pipe.source().read(read);
+      read.flip();
+      while (read.hasRemaining()) {
+        assertEquals((byte) (received++ % 127), read.get());
+      }
+    }
+    assertTrue(queue.isEmpty());
+    assertTrue(queue.isBelowLowWaterMark());
+    assertEquals(0, queue.queuedBytes());
+
+    pipe.sink().close();
+    pipe.source().close();
+  }
+}